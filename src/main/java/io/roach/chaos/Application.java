@@ -3,39 +3,46 @@ package io.roach.chaos;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.DoubleSummaryStatistics;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.IntStream;
 
 import javax.sql.DataSource;
 
+import org.HdrHistogram.Histogram;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.jdbc.JdbcRepositoriesAutoConfiguration;
-
+import org.springframework.data.util.Pair;
+
+import io.roach.chaos.ParameterMatrix.Cell;
+import io.roach.chaos.RunResult.LimitSample;
+import io.roach.chaos.RunResult.Phase;
+import io.roach.chaos.ThreadSweep.Step;
+import io.roach.chaos.cluster.Agent;
+import io.roach.chaos.cluster.Coordinator;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.Snapshot;
+import io.roach.chaos.model.LockType;
 import io.roach.chaos.util.AsciiArt;
 import io.roach.chaos.util.ColoredLogger;
 import io.roach.chaos.util.CsvExporter;
 import io.roach.chaos.util.DatabaseInfo;
 import io.roach.chaos.util.Exporter;
+import io.roach.chaos.util.RetryMode;
 import io.roach.chaos.workload.Workload;
+import io.roach.chaos.workload.WorkloadMix;
+import io.roach.chaos.workload.WorkloadType;
 
 @SpringBootApplication(exclude = {
         JdbcRepositoriesAutoConfiguration.class
 })
 public class Application implements ApplicationRunner {
+    private static final Duration DEFAULT_SWEEP_STEP = Duration.ofSeconds(30);
+
     private final ColoredLogger logger = ColoredLogger.newInstance();
 
     @Autowired
@@ -47,6 +54,15 @@ public class Application implements ApplicationRunner {
     @Autowired
     private Workload workload;
 
+    @Autowired
+    private WorkloadDriver driver;
+
+    @Autowired
+    private Coordinator coordinator;
+
+    @Autowired
+    private Agent agent;
+
     @Override
     public void run(ApplicationArguments args) {
         if (settings.getSelection() > settings.getNumAccounts()) {
@@ -60,83 +76,95 @@ public class Application implements ApplicationRunner {
             logger.warn("Setting max threads to %d".formatted(settings.getWorkers()));
         }
 
-        workload.validateSettings();
+        if (!settings.isTimeBoxed() && !settings.getCooldown().isZero()) {
+            logger.warn("Cooldown (%s) ignored without a run duration!".formatted(settings.getCooldown()));
+            settings.setCooldown(Duration.ZERO);
+        }
 
-        printSettings(args);
+        if (settings.isAgent()) {
+            // The coordinator owns the schema and dataset
+            settings.setSkipCreate(true);
+            settings.setSkipInit(true);
+        }
 
-        if (settings.isQuit()) {
-            logger.info("Quitting..");
-            System.exit(0);
+        if (settings.isProcedureMode() && (settings.isOptimisticLocking()
+                || settings.getLockType() == LockType.FOR_SHARE
+                || settings.getLockTypes().contains(LockType.FOR_SHARE)
+                || settings.getLockTypes().contains(LockType.COMPARE_AND_SET))) {
+            logger.warn("Stored procedure mode locks with FOR UPDATE or not at all - other lock types are ignored");
         }
 
-        final ExecutorService executorService = Executors.newFixedThreadPool(settings.getWorkers());
-        final List<Duration> allDurations = new ArrayList<>();
-        final AtomicInteger totalRetries = new AtomicInteger();
-        int commits = 0;
-        int fails = 0;
+        if (settings.isSweep() && !settings.isTimeBoxed()) {
+            settings.setDuration(DEFAULT_SWEEP_STEP);
+            logger.warn("Running each sweep step for %s".formatted(settings.getDuration()));
+        }
 
-        final Progress progress = new Progress()
-                .setStartTime(Instant.now())
-                .setTotal(settings.getIterations());
+        workload.validateSettings();
 
-        try {
-            workload.beforeAllExecutions();
+        if (!settings.isSkipRetry()
+                && (settings.getRetryMode() == RetryMode.SAVEPOINT
+                || settings.getRetryModes().contains(RetryMode.SAVEPOINT))
+                && !workload.databaseVersion().contains("CockroachDB")) {
+            throw new IllegalStateException("Savepoint retry mode requires CockroachDB");
+        }
 
-            final Instant startTime = Instant.now();
+        if (settings.isOnlineVerify() && !workload.isVerifiable()) {
+            logger.warn("No online invariants for %s - verifier disabled".formatted(settings.getWorkloadType()));
+            settings.setVerifyInterval(Duration.ZERO);
+        }
 
-            final Deque<Future<List<Duration>>> futures = new ArrayDeque<>();
+        if (settings.isVerifySnapshot() && !workload.databaseVersion().contains("CockroachDB")) {
+            logger.warn("Consistency check snapshots require CockroachDB - reading latest instead");
+            settings.setVerifySnapshot(false);
+        }
 
-            // Queue workers
-            IntStream.rangeClosed(1, settings.getIterations())
-                    .forEach(value -> futures.add(executorService.submit(workload::oneExecution)));
+        printSettings(args);
 
-            // Await completion
-            while (!futures.isEmpty()) {
-                progress.setCurrent(settings.getIterations() - futures.size());
-                progress.setLabel("[%,d futures remain]".formatted(futures.size()));
+        if (settings.isQuit()) {
+            logger.info("Quitting..");
+            System.exit(0);
+        }
 
-                AsciiArt.printProgressBar(
-                        progress.getTotal(),
-                        progress.getCurrent(),
-                        progress.getLabel(),
-                        progress.getCallsPerSec(),
-                        progress.getRemainingMillis());
+        if (settings.isAgent()) {
+            agent.run();
+            return;
+        }
 
-                try {
-                    List<Duration> stats = futures.pop().get();
+        if (settings.isCoordinator()) {
+            printResults(coordinator.run(workload::beforeAllExecutions));
+            workload.afterAllExecutions();
+            return;
+        }
 
-                    totalRetries.addAndGet(stats.size() - 1); // More than one duration means at least one retry
-                    allDurations.addAll(stats);
+        workload.beforeAllExecutions();
 
-                    commits++;
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    e.printStackTrace(System.err);
-                    fails++;
-                    break;
-                } catch (ExecutionException e) { // Mainly if retries are exhausted
-                    logger.error("", e.getCause());
-                    fails++;
-                }
-            }
+        if (settings.isMatrix()) {
+            printMatrixResults(runMatrix());
+            return;
+        }
 
-            printResults(Duration.between(startTime, Instant.now()),
-                    commits, fails, totalRetries.get(), allDurations);
-            workload.afterAllExecutions();
-        } finally {
-            executorService.shutdownNow();
+        if (settings.isSweep()) {
+            printSweepResults(runSweep());
+        } else {
+            printResults(driver.run());
         }
+
+        workload.afterAllExecutions();
     }
 
-    private static double percentile(List<Double> orderedList, double percentile) {
-        if (percentile < 0 || percentile > 1) {
-            throw new IllegalArgumentException(">=0 N <=1");
-        }
-        if (!orderedList.isEmpty()) {
-            int index = (int) Math.ceil(percentile * orderedList.size());
-            return orderedList.get(index - 1);
-        }
-        return 0f;
+    /**
+     * @return sum of all samples in milliseconds
+     */
+    private static double cumulativeMillis(Histogram histogram) {
+        return toMillis(histogram.getMean() * histogram.getTotalCount());
+    }
+
+    private static double minMillis(Histogram histogram) {
+        return toMillis(histogram.getTotalCount() > 0 ? histogram.getMinValue() : 0);
+    }
+
+    private static double toMillis(double micros) {
+        return micros / 1000.0;
     }
 
     private void printSettings(ApplicationArguments args) {
@@ -157,7 +185,8 @@ public class Application implements ApplicationRunner {
 
         logger.highlight("Workload Commons");
         {
-            logger.info("Workload Type: %s".formatted(settings.getWorkloadType()));
+            logger.info("Workload Type: %s".formatted(settings.getWorkloadType() == WorkloadType.MIXED
+                    ? "MIXED " + WorkloadMix.parse(settings.getWorkloadMix()) : settings.getWorkloadType()));
             logger.info("Account Total: %d".formatted(settings.getNumAccounts()));
             logger.info("Account Selection: %d (%.1f%%)"
                     .formatted(settings.getSelection(),
@@ -169,12 +198,39 @@ public class Application implements ApplicationRunner {
         {
             logger.info("R/W Ratio (P2 only): %s".formatted(settings.getReadWriteRatio()));
             logger.info("Contention Level (P4 only): %s".formatted(settings.getContentionLevel()));
+            logger.info("Batch Legs (P4 only): %s".formatted(settings.isBatchLegs()));
         }
 
         logger.highlight("Concurrency");
         {
-            logger.info("Worker Threads: %d".formatted(settings.getWorkers()));
-            logger.info("Iterations: %d".formatted(settings.getIterations()));
+            if (settings.isCoordinator()) {
+                logger.info("Coordinator: %d agents on port %d"
+                        .formatted(settings.getAgents(), settings.getCoordinatorPort()));
+            }
+            if (settings.isAgent()) {
+                logger.info("Agent of: %s".formatted(settings.getCoordinatorAddress()));
+            }
+            logger.info("Worker Threads: %s%s".formatted(settings.isSweep()
+                            ? "sweep " + settings.getThreadSweep()
+                            : settings.getWorkerCounts().size() > 1 ? settings.getWorkerCounts() : settings.getWorkers(),
+                    settings.isVirtualThreads() ? " (virtual)" : ""));
+            if (settings.isTimeBoxed()) {
+                logger.info("Duration: %s".formatted(settings.getDuration()));
+            } else {
+                logger.info("Iterations: %d".formatted(settings.getIterations()));
+            }
+            logger.info("Arrival Rate: %s".formatted(settings.isOpenLoop()
+                    ? "%,d tx/s (open-loop)".formatted(settings.getRate()) : "<none> (closed-loop)"));
+            logger.info("Warmup: %s".formatted(settings.getWarmup()));
+            logger.info("Cooldown: %s".formatted(settings.getCooldown()));
+            logger.info("Interval Reports: %s".formatted(settings.isIntervalReporting()
+                    ? "every %s to %s".formatted(settings.getReportInterval(), settings.getReportFile()) : "<none>"));
+            logger.info("Retry Backoff: %s".formatted(settings.getBackoffType()));
+            logger.info("Retry Mode: %s".formatted(settings.getRetryModes().size() > 1
+                    ? settings.getRetryModes() : settings.getRetryMode()));
+            logger.info("Adaptive Limiter: %s".formatted(settings.getLimiterType()));
+            logger.info("Retry Budget: %s".formatted(settings.getRetryBudget() > 0
+                    ? "%d%% of first attempts".formatted(settings.getRetryBudget()) : "<none>"));
             logger.info("Retry Jitter: %s".formatted(settings.isRetryJitter()));
             logger.info("Skip Retries: %s".formatted(settings.isSkipRetry()));
             logger.info("Skip DDL preset: %s".formatted(settings.isSkipCreate()));
@@ -183,28 +239,70 @@ public class Application implements ApplicationRunner {
 
         logger.highlight("Safety");
         {
-            logger.info("Lock Type: %s".formatted(settings.getLockType()));
-            logger.info("Isolation Level: %s".formatted(settings.getIsolationLevel()));
+            logger.info("Lock Type: %s".formatted(settings.getLockTypes().size() > 1
+                    ? settings.getLockTypes() : settings.getLockType()));
+            logger.info("Lock Order: %s".formatted(settings.getLockOrders().size() > 1
+                    ? settings.getLockOrders() : settings.getLockOrder()));
+            logger.info("Execution Mode: %s".formatted(settings.getExecutionModes().size() > 1
+                    ? settings.getExecutionModes() : settings.getExecutionMode()));
+            logger.info("Isolation Level: %s".formatted(settings.getIsolationLevels().size() > 1
+                    ? settings.getIsolationLevels() : settings.getIsolationLevel()));
+            if (settings.isMatrix()) {
+                logger.info("Matrix Cells: %d".formatted(ParameterMatrix.of(settings).getCells().size()));
+            }
         }
     }
 
-    private void printResults(Duration duration,
-                              int commits, int fails, int totalRetries,
-                              List<Duration> allDurations) {
+    private void printResults(RunResult result) {
+        final Snapshot snapshot = result.getMeasurement();
+
+        printWorkloadSummary();
+        printTransactions(result);
 
-        final DoubleSummaryStatistics summaryStatistics = allDurations
-                .stream()
-                .mapToDouble(Duration::toMillis)
-                .sorted()
-                .summaryStatistics();
+        if (settings.isOptimisticLocking()) {
+            printOptimisticLocking(snapshot);
+        }
+
+        if (snapshot.histogram(Metrics.READ_STATEMENT_TIME).getTotalCount() > 0) {
+            printRepeatedReads(snapshot);
+        }
+
+        if (settings.isOnlineVerify()) {
+            printOnlineVerifier(result);
+        }
+
+        printTimings(snapshot);
 
-        final List<Double> allDurationMillis = allDurations.stream()
-                .mapToDouble(Duration::toMillis)
-                .sorted()
-                .boxed()
-                .toList();
+        if (settings.isAdaptiveLimit() && !result.getLimitSamples().isEmpty()) {
+            printAdaptiveLimiter(result);
+        }
+
+        printRetryOutcome(result);
+        printRetryBackoff(snapshot);
+        printTimeBreakdown(snapshot);
+        printServiceTime(snapshot);
+
+        if (settings.getWorkloadType() == WorkloadType.MIXED) {
+            printWorkloadMix(result);
+        }
+
+        if (settings.isVirtualThreads()) {
+            printVirtualThreads(result);
+        }
 
+        printSafety(result);
 
+        final long fails = snapshot.counter(Metrics.FAILS);
+        if (fails > 0) {
+            logger.error("There are %d non-transient errors that invalidates the final outcome!".formatted(fails));
+        }
+
+        if (settings.isExportCsv()) {
+            exportResults(result);
+        }
+    }
+
+    private void printWorkloadSummary() {
         logger.highlight("Workload Summary");
         {
             logger.info("Workload: %s".formatted(settings.getWorkloadType()));
@@ -213,37 +311,234 @@ public class Application implements ApplicationRunner {
                     .formatted(settings.getSelection(),
                             (double) settings.getSelection() / (double) settings.getNumAccounts() * 100.0));
             logger.info("Threads: %d".formatted(settings.getWorkers()));
-            logger.info("Iterations: %d".formatted(settings.getIterations()));
+            if (settings.isTimeBoxed()) {
+                logger.info("Duration: %s".formatted(settings.getDuration()));
+            } else {
+                logger.info("Iterations: %d".formatted(settings.getIterations()));
+            }
             logger.info("Isolation Level: %s".formatted(settings.getIsolationLevel()));
             logger.info("Lock Type: %s".formatted(settings.getLockType()));
         }
+    }
+
+    private void printTransactions(RunResult result) {
+        final Snapshot snapshot = result.getMeasurement();
 
         logger.highlight("Transactions");
         {
-            logger.info("Execution Time: %s".formatted(duration));
-            logger.info("Total Commits: %,d".formatted(commits));
-            logger.info("Total Fails: %,d".formatted(fails));
-            logger.info("Total Retries: %,d".formatted(totalRetries));
+            logger.info("Execution Time: %s".formatted(result.getMeasurementTime()));
+            logger.info("Throughput: %,.1f tx/s".formatted(result.getThroughput(Phase.MEASURE)));
+            logger.info("Total Commits: %,d".formatted(snapshot.counter(Metrics.COMMITS)));
+            logger.info("Total Fails: %,d".formatted(snapshot.counter(Metrics.FAILS)));
+            logger.info("Total Retries: %,d".formatted(snapshot.counter(Metrics.RETRIES)));
+            logger.info("Total Deadlocks: %,d".formatted(snapshot.counter(Metrics.DEADLOCKS)));
+            if (settings.getRetryBudget() > 0) {
+                logger.info("Retry Budget Exhausted: %,d".formatted(snapshot.counter(Metrics.BUDGET_EXHAUSTED)));
+                logger.info("Shed by Breaker: %,d".formatted(snapshot.counter(Metrics.SHED)));
+            }
+        }
+
+        for (Phase phase : EnumSet.of(Phase.WARMUP, Phase.COOLDOWN)) {
+            if (!result.getDuration(phase).isZero()) {
+                Histogram h = result.getSnapshot(phase).histogram(Metrics.TRANSACTION_TIME);
+                logger.info("%s (excluded): %,d commits, %,.1f tx/s, P99 %.1f ms in %s"
+                        .formatted(phase, result.getSnapshot(phase).counter(Metrics.COMMITS),
+                                result.getThroughput(phase),
+                                toMillis(h.getValueAtPercentile(99)),
+                                result.getDuration(phase)));
+            }
+        }
+    }
+
+    private void printOptimisticLocking(Snapshot snapshot) {
+        logger.highlight("Optimistic Locking");
+        {
+            long hits = snapshot.counter(Metrics.VERSION_CACHE_HITS);
+            long misses = snapshot.counter(Metrics.VERSION_CACHE_MISSES);
+            logger.info("Version cache hits: %,d (%.1f%%)".formatted(hits,
+                    hits + misses > 0 ? hits * 100.0 / (hits + misses) : 0));
+            logger.info("Version cache misses: %,d".formatted(misses));
+            logger.info("Stale versions: %,d".formatted(snapshot.counter(Metrics.STALE_VERSIONS)));
         }
+    }
+
+    private void printRepeatedReads(Snapshot snapshot) {
+        logger.highlight("Repeated Reads (%s)".formatted(settings.isMultiKeyReads() ? "multi-key" : "single-key"));
+        {
+            Histogram readStatementTime = snapshot.histogram(Metrics.READ_STATEMENT_TIME);
+            Histogram readTransactionTime = snapshot.histogram(Metrics.READ_TRANSACTION_TIME);
+            logger.info("Read statements: %,d".formatted(readStatementTime.getTotalCount()));
+            logger.info("Read transactions: %,d".formatted(readTransactionTime.getTotalCount()));
+            logger.info("Statements per read transaction: %.1f".formatted(
+                    readTransactionTime.getTotalCount() > 0
+                            ? (double) readStatementTime.getTotalCount() / readTransactionTime.getTotalCount()
+                            : 0));
+            printLatency("Per statement", readStatementTime);
+            printLatency("Per transaction", readTransactionTime);
+        }
+    }
+
+    private void printOnlineVerifier(RunResult result) {
+        final Duration duration = result.getMeasurementTime();
+
+        logger.highlight("Online Verifier (every %s)".formatted(settings.getVerifyInterval()));
+        {
+            Snapshot verifier = scopedSnapshot(result.getMeasurement(), Metrics.VERIFIER_SCOPE);
+            Histogram checkTime = verifier.histogram(Metrics.INVARIANT_CHECK_TIME);
+            long violations = verifier.counter(Metrics.INVARIANT_VIOLATIONS);
+            double busyTime = cumulativeMillis(checkTime);
+            logger.info("Invariant checks: %,d".formatted(verifier.counter(Metrics.INVARIANT_CHECKS)));
+            if (violations > 0) {
+                logger.error("Invariant violations: %,d %s".formatted(violations, AsciiArt.flipTableRoughly()));
+            } else {
+                logger.info("Invariant violations: 0");
+            }
+            printLatency("Check time", checkTime);
+            printLatency("Pool wait", verifier.histogram(Metrics.POOL_WAIT_TIME));
+            logger.info("Verifier busy: %.0f ms (%.1f%% of one connection)".formatted(busyTime,
+                    duration.toMillis() > 0 ? busyTime * 100 / duration.toMillis() : 0));
+        }
+    }
+
+    private void printTimings(Snapshot snapshot) {
+        final Histogram histogram = snapshot.histogram(Metrics.TRANSACTION_TIME);
 
         logger.highlight("Timings");
         {
-            logger.info("Avg time in txn: %.1f ms".formatted(summaryStatistics.getAverage()));
-            logger.info("Cumulative time in txn: %.0f ms".formatted(summaryStatistics.getSum()));
-            logger.info("Min time in txn: %.1f ms".formatted(summaryStatistics.getMin()));
-            logger.info("Max time in txn: %.1f ms".formatted(summaryStatistics.getMax()));
-            logger.info("Total samples: %d".formatted(summaryStatistics.getCount()));
-            logger.info("P50 latency: %.1f ms".formatted(percentile(allDurationMillis, .50)));
-            logger.info("P95 latency: %.1f ms".formatted(percentile(allDurationMillis, .95)));
-            logger.info("P99 latency: %.1f ms".formatted(percentile(allDurationMillis, .99)));
-            logger.info("P999 latency: %.1f ms".formatted(percentile(allDurationMillis, .999)));
+            logger.info("Avg time in txn: %.1f ms".formatted(toMillis(histogram.getMean())));
+            logger.info("Cumulative time in txn: %.0f ms".formatted(cumulativeMillis(histogram)));
+            logger.info("Min time in txn: %.1f ms".formatted(minMillis(histogram)));
+            logger.info("Max time in txn: %.1f ms".formatted(toMillis(histogram.getMaxValue())));
+            logger.info("Total samples: %d".formatted(histogram.getTotalCount()));
+            logger.info("P50 latency: %.1f ms".formatted(toMillis(histogram.getValueAtPercentile(50))));
+            logger.info("P95 latency: %.1f ms".formatted(toMillis(histogram.getValueAtPercentile(95))));
+            logger.info("P99 latency: %.1f ms".formatted(toMillis(histogram.getValueAtPercentile(99))));
+            logger.info("P999 latency: %.1f ms".formatted(toMillis(histogram.getValueAtPercentile(99.9))));
+        }
+    }
+
+    private void printAdaptiveLimiter(RunResult result) {
+        logger.highlight("Adaptive Limiter (%s)".formatted(settings.getLimiterType()));
+        {
+            List<LimitSample> samples = result.getLimitSamples();
+            logger.info("Limit min/avg/max: %d / %.1f / %d".formatted(
+                    samples.stream().mapToInt(LimitSample::limit).min().orElse(0),
+                    samples.stream().mapToInt(LimitSample::limit).average().orElse(0),
+                    samples.stream().mapToInt(LimitSample::limit).max().orElse(0)));
+            logger.info("Goodput: %,.1f tx/s".formatted(result.getThroughput(Phase.MEASURE)));
+
+            // Evenly spaced samples of the limit over time
+            int step = Math.max(1, samples.size() / 20);
+            for (int i = 0; i < samples.size(); i += step) {
+                LimitSample sample = samples.get(i);
+                logger.info("%8.1fs limit %4d goodput %,10.1f tx/s".formatted(
+                        sample.elapsed().toMillis() / 1000.0, sample.limit(), sample.goodput()));
+            }
+        }
+    }
+
+    private void printRetryOutcome(RunResult result) {
+        final Snapshot snapshot = result.getMeasurement();
+
+        logger.highlight("Retry Outcome (%s)".formatted(settings.getRetryMode()));
+        {
+            logger.info("Retried transactions: %,d".formatted(snapshot.counter(Metrics.RETRIED)));
+            logger.info("Recovered transactions: %,d".formatted(snapshot.counter(Metrics.RECOVERED)));
+            logger.info("Retry success rate: %.1f%%".formatted(result.getRetrySuccessRate(Phase.MEASURE) * 100));
+            printLatency("Retry time", snapshot.histogram(Metrics.RETRY_TIME));
+        }
+    }
+
+    private void printRetryBackoff(Snapshot snapshot) {
+        logger.highlight("Retry Backoff (%s)".formatted(settings.getBackoffType()));
+        {
+            Histogram backoff = snapshot.histogram(Metrics.BACKOFF_TIME);
+            double sleepTime = cumulativeMillis(backoff);
+            double workTime = cumulativeMillis(snapshot.histogram(Metrics.TRANSACTION_TIME));
+            logger.info("Backoff sleeps: %,d".formatted(backoff.getTotalCount()));
+            logger.info("Time sleeping: %.0f ms".formatted(sleepTime));
+            logger.info("Time working: %.0f ms".formatted(workTime));
+            logger.info("Sleep share: %.1f%%".formatted(sleepTime + workTime > 0
+                    ? sleepTime * 100.0 / (sleepTime + workTime) : 0));
+            logger.info("Backoff P50/P99/max: %.1f / %.1f / %.1f ms".formatted(
+                    toMillis(backoff.getValueAtPercentile(50)),
+                    toMillis(backoff.getValueAtPercentile(99)),
+                    toMillis(backoff.getMaxValue())));
+        }
+    }
+
+    private void printTimeBreakdown(Snapshot snapshot) {
+        logger.highlight("Time Breakdown");
+        {
+            printLatency("Pool wait", snapshot.histogram(Metrics.POOL_WAIT_TIME));
+            printLatency("Begin", snapshot.histogram(Metrics.BEGIN_TIME));
+            printLatency("Statements", snapshot.histogram(Metrics.STATEMENT_TIME));
+            printLatency("Commit", snapshot.histogram(Metrics.COMMIT_TIME));
+            printLatency("Backoff per transaction", snapshot.histogram(Metrics.TOTAL_BACKOFF_TIME));
+        }
+    }
+
+    private void printServiceTime(Snapshot snapshot) {
+        logger.highlight(settings.isOpenLoop()
+                ? "Service vs Response Time (%,d tx/s offered)".formatted(settings.getRate())
+                : "Service Time");
+        {
+            printLatency("Service time", snapshot.histogram(Metrics.SERVICE_TIME));
+            if (settings.isOpenLoop()) {
+                printLatency("Response time", snapshot.histogram(Metrics.RESPONSE_TIME));
+            }
+        }
+    }
+
+    private void printWorkloadMix(RunResult result) {
+        final Duration duration = result.getMeasurementTime();
+
+        logger.highlight("Workload Mix");
+        {
+            final WorkloadMix mix = WorkloadMix.parse(settings.getWorkloadMix());
+            mix.getWeights().forEach((type, weight) -> {
+                Snapshot scoped = scopedSnapshot(result.getMeasurement(), type.alias());
+                Histogram serviceTime = scoped.histogram(Metrics.SERVICE_TIME);
+                long transactions = scoped.counter(Metrics.COMMITS) + scoped.counter(Metrics.FAILS);
+                long retried = scoped.counter(Metrics.RETRIED);
+                logger.info(("%s (%d%%): %,d commits, %,d fails, %,.1f tx/s, %.3f retries/tx, "
+                        + "%.1f%% retries recovered in P99 %.1f ms, P50/P99 %.1f / %.1f ms")
+                        .formatted(type.alias(),
+                                weight * 100 / mix.getTotalWeight(),
+                                scoped.counter(Metrics.COMMITS),
+                                scoped.counter(Metrics.FAILS),
+                                duration.toMillis() > 0
+                                        ? scoped.counter(Metrics.COMMITS) * 1000.0 / duration.toMillis() : 0,
+                                transactions > 0 ? (double) scoped.counter(Metrics.RETRIES) / transactions : 0,
+                                retried > 0 ? scoped.counter(Metrics.RECOVERED) * 100.0 / retried : 0,
+                                toMillis(scoped.histogram(Metrics.RETRY_TIME).getValueAtPercentile(99)),
+                                toMillis(serviceTime.getValueAtPercentile(50)),
+                                toMillis(serviceTime.getValueAtPercentile(99))));
+            });
+        }
+    }
+
+    private void printVirtualThreads(RunResult result) {
+        logger.highlight("Virtual Threads");
+        {
+            Histogram pinned = result.getMeasurement().histogram(Metrics.PINNED_TIME);
+            logger.info("Pinned events: %,d".formatted(pinned.getTotalCount()));
+            logger.info("Pinned time total: %.1f ms".formatted(cumulativeMillis(pinned)));
+            logger.info("Pinned time P99/max: %.1f / %.1f ms".formatted(
+                    toMillis(pinned.getValueAtPercentile(99)), toMillis(pinned.getMaxValue())));
+            result.getPinnedSites().entrySet().stream().limit(5).forEach(e ->
+                    logger.info("Pinned at %s: %,d".formatted(e.getKey(), e.getValue())));
         }
+    }
 
+    private void printSafety(RunResult result) {
         logger.highlight("Safety");
         {
             final String isolationLevel = workload.isolationLevel();
 
             logger.info("Lock Type: %s".formatted(settings.getLockType()));
+            logger.info("Lock Order: %s".formatted(settings.getLockOrder()));
+            logger.info("Execution Mode: %s".formatted(settings.getExecutionMode()));
             logger.info("Isolation Level: %s".formatted(settings.getIsolationLevel()));
             logger.info("Reported Isolation Level: %s".formatted(isolationLevel));
 
@@ -251,36 +546,311 @@ public class Application implements ApplicationRunner {
                     .equalsIgnoreCase(settings.getIsolationLevel().name())) {
                 logger.warn("CAUTION: Configured and reported isolation level differs!!");
             }
+
+            if (settings.isCoordinator()) {
+                if (result.getAnomalies() > 0) {
+                    logger.error("Anomalies observed by agents: %,d %s"
+                            .formatted(result.getAnomalies(), AsciiArt.flipTableRoughly()));
+                } else {
+                    logger.info("Anomalies observed by agents: 0");
+                }
+            }
         }
+    }
 
-        if (fails > 0) {
-            logger.error("There are %d non-transient errors that invalidates the final outcome!".formatted(fails));
+    private void exportResults(RunResult result) {
+        final Snapshot snapshot = result.getMeasurement();
+        final Histogram histogram = snapshot.histogram(Metrics.TRANSACTION_TIME);
+        final Histogram backoff = snapshot.histogram(Metrics.BACKOFF_TIME);
+        final Snapshot verifier = scopedSnapshot(snapshot, Metrics.VERIFIER_SCOPE);
+
+        try (Exporter exporter = new CsvExporter(Path.of("chaos.csv"))) {
+            exporter.writeHeader(List.of("name", "value", "unit"));
+            writeRow(exporter, "duration", result.getMeasurementTime(), "time");
+            writeRow(exporter, "threads", settings.getWorkers(), "counter");
+            writeRow(exporter, "contentionLevel", settings.getContentionLevel(), "counter");
+            writeRow(exporter, "batchLegs", settings.isBatchLegs(), "flag");
+            writeRow(exporter, "selection", settings.getSelection(), "counter");
+            writeRow(exporter, "accounts", settings.getNumAccounts(), "counter");
+            writeRow(exporter, "warmup", result.getDuration(Phase.WARMUP), "time");
+            writeRow(exporter, "cooldown", result.getDuration(Phase.COOLDOWN), "time");
+            writeRow(exporter, "throughput", result.getThroughput(Phase.MEASURE), "tx/s");
+            writeRow(exporter, "commits", snapshot.counter(Metrics.COMMITS), "counter");
+            writeRow(exporter, "fails", snapshot.counter(Metrics.FAILS), "counter");
+            writeRow(exporter, "retries", snapshot.counter(Metrics.RETRIES), "counter");
+            writeRow(exporter, "deadlocks", snapshot.counter(Metrics.DEADLOCKS), "counter");
+            writeRow(exporter, "versionCacheHits", snapshot.counter(Metrics.VERSION_CACHE_HITS), "counter");
+            writeRow(exporter, "versionCacheMisses", snapshot.counter(Metrics.VERSION_CACHE_MISSES), "counter");
+            writeRow(exporter, "staleVersions", snapshot.counter(Metrics.STALE_VERSIONS), "counter");
+            writeRow(exporter, "invariantChecks", verifier.counter(Metrics.INVARIANT_CHECKS), "counter");
+            writeRow(exporter, "invariantViolations", verifier.counter(Metrics.INVARIANT_VIOLATIONS), "counter");
+            writeLatency(exporter, "invariantCheckTime", verifier.histogram(Metrics.INVARIANT_CHECK_TIME));
+            writeLatency(exporter, "verifierPoolWaitTime", verifier.histogram(Metrics.POOL_WAIT_TIME));
+            writeLatency(exporter, "readStatementTime", snapshot.histogram(Metrics.READ_STATEMENT_TIME));
+            writeLatency(exporter, "readTransactionTime", snapshot.histogram(Metrics.READ_TRANSACTION_TIME));
+            writeRow(exporter, "budgetExhausted", snapshot.counter(Metrics.BUDGET_EXHAUSTED), "counter");
+            writeRow(exporter, "shed", snapshot.counter(Metrics.SHED), "counter");
+            writeRow(exporter, "avgTime", toMillis(histogram.getMean()), "ms");
+            writeRow(exporter, "cumulativeTime", cumulativeMillis(histogram), "ms");
+            writeRow(exporter, "minTime", minMillis(histogram), "ms");
+            writeRow(exporter, "maxTime", toMillis(histogram.getMaxValue()), "ms");
+            writeRow(exporter, "samples", histogram.getTotalCount(), "counter");
+            writeRow(exporter, "P50", toMillis(histogram.getValueAtPercentile(50)), "ms");
+            writeRow(exporter, "P95", toMillis(histogram.getValueAtPercentile(95)), "ms");
+            writeRow(exporter, "P99", toMillis(histogram.getValueAtPercentile(99)), "ms");
+            writeRow(exporter, "P999", toMillis(histogram.getValueAtPercentile(99.9)), "ms");
+            writeLatency(exporter, "serviceTime", snapshot.histogram(Metrics.SERVICE_TIME));
+            writeLatency(exporter, "poolWaitTime", snapshot.histogram(Metrics.POOL_WAIT_TIME));
+            writeLatency(exporter, "beginTime", snapshot.histogram(Metrics.BEGIN_TIME));
+            writeLatency(exporter, "statementTime", snapshot.histogram(Metrics.STATEMENT_TIME));
+            writeLatency(exporter, "commitTime", snapshot.histogram(Metrics.COMMIT_TIME));
+            writeLatency(exporter, "backoffSleepTime", backoff);
+            writeLatency(exporter, "totalBackoffTime", snapshot.histogram(Metrics.TOTAL_BACKOFF_TIME));
+            writeRow(exporter, "backoff", settings.getBackoffType(), "strategy");
+            writeRow(exporter, "retryMode", settings.getRetryMode(), "strategy");
+            writeRow(exporter, "executionMode", settings.getExecutionMode(), "strategy");
+            writeRow(exporter, "retried", snapshot.counter(Metrics.RETRIED), "counter");
+            writeRow(exporter, "recovered", snapshot.counter(Metrics.RECOVERED), "counter");
+            writeRow(exporter, "retrySuccessRate", result.getRetrySuccessRate(Phase.MEASURE), "ratio");
+            writeLatency(exporter, "retryTime", snapshot.histogram(Metrics.RETRY_TIME));
+            if (settings.isAdaptiveLimit()) {
+                writeRow(exporter, "limiter", settings.getLimiterType(), "strategy");
+                writeRow(exporter, "limitAvg", result.getLimitSamples().stream()
+                        .mapToInt(LimitSample::limit).average().orElse(0), "counter");
+            }
+            writeRow(exporter, "backoffSleeps", backoff.getTotalCount(), "counter");
+            writeRow(exporter, "backoffTime", cumulativeMillis(backoff), "ms");
+            if (settings.isVirtualThreads()) {
+                writeRow(exporter, "pinnedEvents", snapshot.histogram(Metrics.PINNED_TIME).getTotalCount(), "counter");
+                writeLatency(exporter, "pinnedTime", snapshot.histogram(Metrics.PINNED_TIME));
+            }
+            if (settings.getWorkloadType() == WorkloadType.MIXED) {
+                for (WorkloadType type : WorkloadMix.parse(settings.getWorkloadMix()).getWeights().keySet()) {
+                    Snapshot scoped = scopedSnapshot(snapshot, type.alias());
+                    writeRow(exporter, type.alias() + ".commits", scoped.counter(Metrics.COMMITS), "counter");
+                    writeRow(exporter, type.alias() + ".fails", scoped.counter(Metrics.FAILS), "counter");
+                    writeRow(exporter, type.alias() + ".retries", scoped.counter(Metrics.RETRIES), "counter");
+                    writeRow(exporter, type.alias() + ".retried", scoped.counter(Metrics.RETRIED), "counter");
+                    writeRow(exporter, type.alias() + ".recovered", scoped.counter(Metrics.RECOVERED), "counter");
+                    writeLatency(exporter, type.alias() + ".retryTime", scoped.histogram(Metrics.RETRY_TIME));
+                    writeLatency(exporter, type.alias() + ".serviceTime", scoped.histogram(Metrics.SERVICE_TIME));
+                    writeLatency(exporter, type.alias() + ".transactionTime",
+                            scoped.histogram(Metrics.TRANSACTION_TIME));
+                }
+            }
+            if (settings.isOpenLoop()) {
+                writeRow(exporter, "rate", settings.getRate(), "tx/s");
+                writeLatency(exporter, "responseTime", snapshot.histogram(Metrics.RESPONSE_TIME));
+            }
+        } catch (IOException e) {
+            logger.error("", e);
+        }
+    }
+
+    private List<Step> runSweep() {
+        List<Step> steps = new ArrayList<>();
+
+        for (int threads : settings.getThreadSweep().getSteps()) {
+            settings.setWorkers(threads);
+
+            logger.highlight("Sweep step: %d threads".formatted(threads));
+
+            RunResult result = driver.run();
+            Snapshot snapshot = result.getMeasurement();
+
+            Step step = new Step(threads,
+                    result.getThroughput(Phase.MEASURE),
+                    result.getRetryRate(Phase.MEASURE),
+                    toMillis(snapshot.histogram(Metrics.SERVICE_TIME).getValueAtPercentile(99)));
+            steps.add(step);
+
+            logger.info("%,d threads: %,.1f tx/s, %.3f retries/tx, P99 %.1f ms"
+                    .formatted(step.threads(), step.throughput(), step.retryRate(), step.p99()));
+        }
+
+        return steps;
+    }
+
+    private void printSweepResults(List<Step> steps) {
+        final int saturation = ThreadSweep.saturationIndex(steps);
+        final int peak = ThreadSweep.peakIndex(steps);
+
+        logger.highlight("Thread Sweep (%s per step)".formatted(settings.getDuration()));
+        {
+            logger.info("%8s %12s %12s %10s".formatted("threads", "tx/s", "retries/tx", "P99 ms"));
+            for (int i = 0; i < steps.size(); i++) {
+                Step step = steps.get(i);
+                String note = i == saturation && i == peak ? "<- saturation, peak"
+                        : i == saturation ? "<- saturation"
+                        : i == peak ? "<- peak" : "";
+                logger.info("%8d %12.1f %12.3f %10.1f %s"
+                        .formatted(step.threads(), step.throughput(), step.retryRate(), step.p99(), note));
+            }
+        }
+
+        if (saturation >= 0) {
+            logger.warn("Throughput saturates at %d threads (%,.1f tx/s), peak %,.1f tx/s at %d threads"
+                    .formatted(steps.get(saturation).threads(), steps.get(saturation).throughput(),
+                            steps.get(peak).throughput(), steps.get(peak).threads()));
+        } else {
+            logger.info("No saturation detected up to %d threads".formatted(steps.get(steps.size() - 1).threads()));
         }
 
         if (settings.isExportCsv()) {
-            try (Exporter exporter = new CsvExporter(Path.of("chaos.csv"))) {
-                exporter.writeHeader(List.of("name", "value", "unit"));
-                exporter.write(List.of("duration", duration, "time"));
-                exporter.write(List.of("threads", settings.getWorkers(), "counter"));
-                exporter.write(List.of("contentionLevel", settings.getContentionLevel(), "counter"));
-                exporter.write(List.of("selection", settings.getSelection(), "counter"));
-                exporter.write(List.of("accounts", settings.getNumAccounts(), "counter"));
-                exporter.write(List.of("commits", commits, "counter"));
-                exporter.write(List.of("fails", fails, "counter"));
-                exporter.write(List.of("retries", totalRetries, "counter"));
-                exporter.write(List.of("avgTime", summaryStatistics.getAverage(), "ms"));
-                exporter.write(List.of("cumulativeTime", summaryStatistics.getSum(), "ms"));
-                exporter.write(List.of("minTime", summaryStatistics.getMin(), "ms"));
-                exporter.write(List.of("maxTime", summaryStatistics.getMax(), "ms"));
-                exporter.write(List.of("samples", summaryStatistics.getCount(), "counter"));
-                exporter.write(List.of("P50", percentile(allDurationMillis, .50), "ms"));
-                exporter.write(List.of("P95", percentile(allDurationMillis, .95), "ms"));
-                exporter.write(List.of("P99", percentile(allDurationMillis, .99), "ms"));
-                exporter.write(List.of("P999", percentile(allDurationMillis, .999), "ms"));
+            try (Exporter exporter = new CsvExporter(Path.of("chaos-sweep.csv"))) {
+                exporter.writeHeader(List.of("threads", "throughput", "retryRate", "P99", "saturation", "peak"));
+                for (int i = 0; i < steps.size(); i++) {
+                    Step step = steps.get(i);
+                    exporter.write(List.of(step.threads(), step.throughput(), step.retryRate(), step.p99(),
+                            i == saturation, i == peak));
+                }
             } catch (IOException e) {
                 logger.error("", e);
             }
         }
     }
 
+    /**
+     * Run each cell of the matrix against the dataset seeded up front, resetting the
+     * dataset between cells. Each cell gets its own consistency check.
+     */
+    private List<Pair<Cell, RunResult>> runMatrix() {
+        final ParameterMatrix matrix = ParameterMatrix.of(settings);
+
+        List<Pair<Cell, RunResult>> results = new ArrayList<>();
+
+        for (Cell cell : matrix.getCells()) {
+            cell.applyTo(settings);
+
+            logger.highlight("Matrix cell %d of %d: %s"
+                    .formatted(results.size() + 1, matrix.getCells().size(), cell));
+
+            workload.validateSettings();
+
+            if (!results.isEmpty()) {
+                workload.resetExecutions();
+            }
+
+            RunResult result = driver.run();
+
+            workload.afterAllExecutions();
+
+            result.setAnomalies(workload.anomalyCount());
+
+            results.add(Pair.of(cell, result));
+        }
+
+        return results;
+    }
+
+    private void printMatrixResults(List<Pair<Cell, RunResult>> results) {
+        logger.highlight("Matrix Results (%s)".formatted(settings.getWorkloadType()));
+        {
+            logger.info("%-16s %-16s %-6s %8s %-10s %-5s %12s %12s %10s %12s %10s %10s %10s".formatted(
+                    "isolation", "locking", "order", "threads", "retry", "exec", "tx/s", "retries/tx", "recovered", "retry P99",
+                    "P99 ms", "deadlocks", "anomalies"));
+
+            for (Pair<Cell, RunResult> pair : results) {
+                Cell cell = pair.getFirst();
+                RunResult result = pair.getSecond();
+                String line = "%-16s %-16s %-6s %8d %-10s %-5s %12.1f %12.3f %9.1f%% %12.1f %10.1f %10d %10d".formatted(
+                        cell.isolationLevel(),
+                        cell.lockType(),
+                        cell.lockOrder().alias(),
+                        cell.workers(),
+                        cell.retryMode().alias(),
+                        cell.executionMode().alias(),
+                        result.getThroughput(Phase.MEASURE),
+                        result.getRetryRate(Phase.MEASURE),
+                        result.getRetrySuccessRate(Phase.MEASURE) * 100,
+                        toMillis(result.getMeasurement().histogram(Metrics.RETRY_TIME).getValueAtPercentile(99)),
+                        toMillis(result.getMeasurement().histogram(Metrics.SERVICE_TIME).getValueAtPercentile(99)),
+                        result.getMeasurement().counter(Metrics.DEADLOCKS),
+                        result.getAnomalies());
+                if (result.getAnomalies() > 0) {
+                    logger.error(line);
+                } else {
+                    logger.info(line);
+                }
+            }
+        }
+
+        try (Exporter exporter = new CsvExporter(Path.of("chaos-matrix.csv"))) {
+            exporter.writeHeader(List.of("workload", "isolation", "locking", "lockOrder", "threads", "retryMode",
+                    "executionMode", "throughput", "commits", "fails", "retries", "retryRate", "retrySuccessRate", "retryP99",
+                    "P50", "P99", "deadlocks", "anomalies"));
+            for (Pair<Cell, RunResult> pair : results) {
+                Cell cell = pair.getFirst();
+                RunResult result = pair.getSecond();
+                Snapshot snapshot = result.getMeasurement();
+                Histogram serviceTime = snapshot.histogram(Metrics.SERVICE_TIME);
+                exporter.write(List.of(settings.getWorkloadType(),
+                        cell.isolationLevel(),
+                        cell.lockType(),
+                        cell.lockOrder(),
+                        cell.workers(),
+                        cell.retryMode(),
+                        cell.executionMode(),
+                        result.getThroughput(Phase.MEASURE),
+                        snapshot.counter(Metrics.COMMITS),
+                        snapshot.counter(Metrics.FAILS),
+                        snapshot.counter(Metrics.RETRIES),
+                        result.getRetryRate(Phase.MEASURE),
+                        result.getRetrySuccessRate(Phase.MEASURE),
+                        toMillis(snapshot.histogram(Metrics.RETRY_TIME).getValueAtPercentile(99)),
+                        toMillis(serviceTime.getValueAtPercentile(50)),
+                        toMillis(serviceTime.getValueAtPercentile(99)),
+                        snapshot.counter(Metrics.DEADLOCKS),
+                        result.getAnomalies()));
+            }
+            logger.info("Matrix results written to chaos-matrix.csv");
+        } catch (IOException e) {
+            logger.error("", e);
+        }
+    }
+
+    /**
+     * @return the metrics recorded under the given scope, with the scope prefix removed
+     */
+    private static Snapshot scopedSnapshot(Snapshot snapshot, String scope) {
+        final String prefix = Metrics.scopedName(scope, "");
+        Snapshot scoped = new Snapshot();
+        snapshot.getHistograms().forEach((name, histogram) -> {
+            if (name.startsWith(prefix)) {
+                scoped.putHistogram(name.substring(prefix.length()), histogram);
+            }
+        });
+        snapshot.getCounters().forEach((name, value) -> {
+            if (name.startsWith(prefix)) {
+                scoped.putCounter(name.substring(prefix.length()), value);
+            }
+        });
+        return scoped;
+    }
+
+    private void printLatency(String name, Histogram histogram) {
+        logger.info("%s P50/P95/P99/P999: %.1f / %.1f / %.1f / %.1f ms"
+                .formatted(name,
+                        toMillis(histogram.getValueAtPercentile(50)),
+                        toMillis(histogram.getValueAtPercentile(95)),
+                        toMillis(histogram.getValueAtPercentile(99)),
+                        toMillis(histogram.getValueAtPercentile(99.9))));
+        logger.info("%s avg/max: %.1f / %.1f ms"
+                .formatted(name,
+                        toMillis(histogram.getMean()),
+                        toMillis(histogram.getMaxValue())));
+    }
+
+    private void writeLatency(Exporter exporter, String name, Histogram histogram) {
+        writeRow(exporter, name + "Avg", toMillis(histogram.getMean()), "ms");
+        writeRow(exporter, name + "Max", toMillis(histogram.getMaxValue()), "ms");
+        writeRow(exporter, name + "P50", toMillis(histogram.getValueAtPercentile(50)), "ms");
+        writeRow(exporter, name + "P95", toMillis(histogram.getValueAtPercentile(95)), "ms");
+        writeRow(exporter, name + "P99", toMillis(histogram.getValueAtPercentile(99)), "ms");
+        writeRow(exporter, name + "P999", toMillis(histogram.getValueAtPercentile(99.9)), "ms");
+    }
+
+    private static void writeRow(Exporter exporter, String name, Object value, String unit) {
+        exporter.write(List.of(name, value, unit));
+    }
 }
@@ -6,7 +6,9 @@ import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import io.roach.chaos.metrics.Metrics;
 import io.roach.chaos.repository.AccountRepository;
+import io.roach.chaos.util.RetryBudget;
 import io.roach.chaos.workload.Workload;
 
 @Configuration
@@ -23,6 +25,16 @@ public class ApplicationConfig {
         return settings.getWorkloadType().createInstance();
     }
 
+    @Bean
+    public Metrics metrics() {
+        return new Metrics();
+    }
+
+    @Bean
+    public RetryBudget retryBudget() {
+        return new RetryBudget(settings.getRetryBudget());
+    }
+
     @Bean
     public AccountRepository accountRepository() {
         return settings.getDialect().createInstance(url);
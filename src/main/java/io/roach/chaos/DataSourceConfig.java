@@ -18,6 +18,9 @@ import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
 import net.ttddyy.dsproxy.listener.logging.SLF4JQueryLoggingListener;
 import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.PoolMetricsTrackerFactory;
+
 @Configuration
 public class DataSourceConfig {
     private final Logger sqlTraceLogger = LoggerFactory.getLogger("io.roach.SQL_TRACE");
@@ -25,6 +28,9 @@ public class DataSourceConfig {
     @Autowired
     private Settings settings;
 
+    @Autowired
+    private Metrics metrics;
+
     @Bean
     @Primary
     public DataSource primaryDataSource() {
@@ -62,6 +68,7 @@ public class DataSourceConfig {
         ds.setAutoCommit(true);
         ds.setInitializationFailTimeout(-1);
         ds.setTransactionIsolation("TRANSACTION_" + settings.getIsolationLevel().name());
+        ds.setMetricsTrackerFactory(new PoolMetricsTrackerFactory(metrics));
 
         ds.addDataSourceProperty("reWriteBatchedInserts", "true");
         ds.addDataSourceProperty("application_name", "Chaos");
@@ -0,0 +1,165 @@
+package io.roach.chaos;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.Histogram;
+
+import io.roach.chaos.RunResult.Phase;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.Snapshot;
+import io.roach.chaos.util.Exporter;
+
+/**
+ * Accumulates the drained metric snapshots of a run into fixed length intervals and
+ * writes one record per interval as the run progresses. The latency columns are
+ * taken from the service time (and the response time in open-loop mode) and are
+ * in milliseconds.
+ */
+public class IntervalReporter implements Closeable {
+    private final Exporter exporter;
+
+    private final long intervalNanos;
+
+    private final boolean openLoop;
+
+    private Snapshot current = new Snapshot();
+
+    private long intervalStart;
+
+    private long intervalEnd;
+
+    private Phase phase;
+
+    private boolean headerWritten;
+
+    private Map<String, Object> labels = Map.of();
+
+    private final Map<String, Supplier<Object>> columns = new LinkedHashMap<>();
+
+    public IntervalReporter(Exporter exporter, Duration interval, boolean openLoop) {
+        this.exporter = exporter;
+        this.intervalNanos = interval.toNanos();
+        this.openLoop = openLoop;
+    }
+
+    /**
+     * @param labels run parameters prepended to each record, with the same keys for each run
+     */
+    public IntervalReporter setLabels(Map<String, Object> labels) {
+        this.labels = labels;
+        return this;
+    }
+
+    /**
+     * Add a column sampled when each record is written, like a gauge.
+     */
+    public IntervalReporter setColumn(String name, Supplier<Object> value) {
+        columns.put(name, value);
+        return this;
+    }
+
+    /**
+     * @param startNanos run start time from System.nanoTime()
+     */
+    public IntervalReporter start(long startNanos) {
+        this.current = new Snapshot();
+        this.phase = null;
+        this.intervalStart = startNanos;
+        this.intervalEnd = startNanos + intervalNanos;
+        return this;
+    }
+
+    /**
+     * @return time in nanos until the current interval ends
+     */
+    public long nanosUntilNext(long now) {
+        return intervalEnd - now;
+    }
+
+    /**
+     * Add a drained snapshot and write the interval record if the interval is due.
+     */
+    public void accept(Phase phase, Snapshot snapshot, long now, long startNanos) {
+        this.current.add(snapshot);
+        this.phase = phase;
+
+        if (now - intervalEnd >= 0) {
+            emit(now, startNanos);
+        }
+    }
+
+    private void emit(long now, long startNanos) {
+        final double seconds = Math.max(1e-9, (now - intervalStart) / 1e9);
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("time", Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        record.put("elapsed", round((now - startNanos) / 1e9, 1));
+        record.put("phase", phase);
+        record.putAll(labels);
+        record.put("commits", current.counter(Metrics.COMMITS));
+        record.put("retries", current.counter(Metrics.RETRIES));
+        record.put("fails", current.counter(Metrics.FAILS));
+        record.put("tps", round(current.counter(Metrics.COMMITS) / seconds, 1));
+        putLatency(record, "", current.histogram(Metrics.SERVICE_TIME));
+        if (openLoop) {
+            putLatency(record, "response", current.histogram(Metrics.RESPONSE_TIME));
+        }
+        columns.forEach((name, value) -> record.put(name, value.get()));
+
+        if (!headerWritten) {
+            exporter.writeHeader(new ArrayList<>(record.keySet()));
+            headerWritten = true;
+        }
+        exporter.write(new ArrayList<>(record.values()));
+
+        this.current = new Snapshot();
+        this.intervalStart = now;
+        while (now - intervalEnd >= 0) {
+            this.intervalEnd += intervalNanos;
+        }
+    }
+
+    private static void putLatency(Map<String, Object> record, String prefix, Histogram histogram) {
+        List.of(50.0, 99.0).forEach(p -> record.put(columnName(prefix, "p" + p.intValue()),
+                toMillis(histogram.getValueAtPercentile(p))));
+        record.put(columnName(prefix, "max"), toMillis(histogram.getMaxValue()));
+    }
+
+    private static String columnName(String prefix, String name) {
+        return prefix.isEmpty() ? name : prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static double toMillis(long micros) {
+        return round(micros / (double) TimeUnit.MILLISECONDS.toMicros(1), 2);
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+
+    /**
+     * Write the remaining partial interval, if anything was recorded in it.
+     */
+    public void flush(long now, long startNanos) {
+        if (phase != null && now - intervalStart > 0
+                && (current.counter(Metrics.COMMITS) + current.counter(Metrics.FAILS)) > 0) {
+            emit(now, startNanos);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        exporter.close();
+    }
+}
@@ -1,5 +1,7 @@
 package io.roach.chaos;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -11,12 +13,20 @@ import java.util.Set;
 import org.springframework.boot.Banner;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.util.StringUtils;
 
+import io.roach.chaos.model.ExecutionMode;
 import io.roach.chaos.model.IsolationLevel;
+import io.roach.chaos.model.LockOrder;
 import io.roach.chaos.model.LockType;
+import io.roach.chaos.model.SamplingMethod;
+import io.roach.chaos.workload.WorkloadMix;
 import io.roach.chaos.workload.WorkloadType;
 import io.roach.chaos.util.AsciiArt;
+import io.roach.chaos.util.BackoffType;
+import io.roach.chaos.util.LimiterType;
+import io.roach.chaos.util.RetryMode;
 import io.roach.chaos.util.ColoredOutput;
 import io.roach.chaos.util.Multiplier;
 import io.roach.chaos.util.Output;
@@ -24,6 +34,11 @@ import io.roach.chaos.util.Output;
 public class Main {
     private static final Output output = new ColoredOutput();
 
+    /**
+     * Connection pool size in application.yml.
+     */
+    private static final int DEFAULT_POOL_SIZE = 128;
+
     public static void main(String[] args) {
         Map<String, Object> properties = new LinkedHashMap<>();
 
@@ -59,6 +74,8 @@ public class Main {
                     properties.put("chaos.quit", true);
                 } else if (arg.equals("--export")) {
                     properties.put("chaos.exportCsv", true);
+                } else if (arg.equals("--virtual-threads")) {
+                    properties.put("chaos.virtualThreads", true);
                 } else if (arg.equals("--skip-create")) {
                     properties.put("chaos.skipCreate", true);
                 } else if (arg.equals("--skip-init")) {
@@ -71,29 +88,147 @@ public class Main {
                     }
 
                     try {
-                        String level = argsList.pop();
+                        List<IsolationLevel> levels = Arrays.stream(argsList.pop().split(","))
+                                .map(String::trim)
+                                .map(level -> EnumSet.allOf(IsolationLevel.class)
+                                        .stream()
+                                        .filter(i -> i.alias().equalsIgnoreCase(level) || i.name().equalsIgnoreCase(level))
+                                        .findFirst()
+                                        .orElseGet(() -> IsolationLevel.valueOf(level)))
+                                .toList();
+
+                        properties.put("chaos.isolationLevel", levels.get(0));
+                        if (levels.size() > 1) {
+                            properties.put("chaos.isolationLevels", StringUtils.collectionToCommaDelimitedString(levels));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        printUsageAndQuit("Bad name/alias: " + e.getLocalizedMessage());
+                    }
+                } else if (arg.equals("--locking")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    try {
+                        List<LockType> lockTypes = Arrays.stream(argsList.pop().split(","))
+                                .map(String::trim)
+                                .map(lockType -> EnumSet.allOf(LockType.class)
+                                        .stream()
+                                        .filter(i -> i.alias().equalsIgnoreCase(lockType) || i.name()
+                                                .equalsIgnoreCase(lockType))
+                                        .findFirst()
+                                        .orElseGet(() -> LockType.valueOf(lockType)))
+                                .toList();
+
+                        properties.put("chaos.lockType", lockTypes.get(0));
+                        if (lockTypes.size() > 1) {
+                            properties.put("chaos.lockTypes", StringUtils.collectionToCommaDelimitedString(lockTypes));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        printUsageAndQuit("Bad name/alias: " + e.getLocalizedMessage());
+                    }
+                } else if (arg.equals("--lock-order")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    try {
+                        List<LockOrder> lockOrders = Arrays.stream(argsList.pop().split(","))
+                                .map(String::trim)
+                                .map(lockOrder -> EnumSet.allOf(LockOrder.class)
+                                        .stream()
+                                        .filter(i -> i.alias().equalsIgnoreCase(lockOrder) || i.name()
+                                                .equalsIgnoreCase(lockOrder))
+                                        .findFirst()
+                                        .orElseGet(() -> LockOrder.valueOf(lockOrder)))
+                                .toList();
+
+                        properties.put("chaos.lockOrder", lockOrders.get(0));
+                        if (lockOrders.size() > 1) {
+                            properties.put("chaos.lockOrders", StringUtils.collectionToCommaDelimitedString(lockOrders));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        printUsageAndQuit("Bad name/alias: " + e.getLocalizedMessage());
+                    }
+                } else if (arg.equals("--execution")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    try {
+                        List<ExecutionMode> executionModes = Arrays.stream(argsList.pop().split(","))
+                                .map(String::trim)
+                                .map(executionMode -> EnumSet.allOf(ExecutionMode.class)
+                                        .stream()
+                                        .filter(i -> i.alias().equalsIgnoreCase(executionMode) || i.name()
+                                                .equalsIgnoreCase(executionMode))
+                                        .findFirst()
+                                        .orElseGet(() -> ExecutionMode.valueOf(executionMode)))
+                                .toList();
+
+                        properties.put("chaos.executionMode", executionModes.get(0));
+                        if (executionModes.size() > 1) {
+                            properties.put("chaos.executionModes",
+                                    StringUtils.collectionToCommaDelimitedString(executionModes));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        printUsageAndQuit("Bad name/alias: " + e.getLocalizedMessage());
+                    }
+                } else if (arg.equals("--backoff")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    try {
+                        String backoff = argsList.pop();
 
-                        properties.put("chaos.isolationLevel", EnumSet.allOf(IsolationLevel.class)
+                        properties.put("chaos.backoffType", EnumSet.allOf(BackoffType.class)
                                 .stream()
-                                .filter(i -> i.alias().equalsIgnoreCase(level) || i.name().equalsIgnoreCase(level))
+                                .filter(i -> i.alias().equalsIgnoreCase(backoff) || i.name().equalsIgnoreCase(backoff))
                                 .findFirst()
-                                .orElseGet(() -> IsolationLevel.valueOf(level)));
+                                .orElseGet(() -> BackoffType.valueOf(backoff)));
                     } catch (IllegalArgumentException e) {
                         printUsageAndQuit("Bad name/alias: " + e.getLocalizedMessage());
                     }
-                } else if (arg.equals("--locking")) {
+                } else if (arg.equals("--retry-mode")) {
                     if (argsList.isEmpty()) {
                         printUsageAndQuit("Expected value for " + arg);
                     }
                     try {
-                        String lockType = argsList.pop();
+                        List<RetryMode> retryModes = Arrays.stream(argsList.pop().split(","))
+                                .map(String::trim)
+                                .map(retryMode -> EnumSet.allOf(RetryMode.class)
+                                        .stream()
+                                        .filter(i -> i.alias().equalsIgnoreCase(retryMode) || i.name()
+                                                .equalsIgnoreCase(retryMode))
+                                        .findFirst()
+                                        .orElseGet(() -> RetryMode.valueOf(retryMode)))
+                                .toList();
+
+                        properties.put("chaos.retryMode", retryModes.get(0));
+                        if (retryModes.size() > 1) {
+                            properties.put("chaos.retryModes", StringUtils.collectionToCommaDelimitedString(retryModes));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        printUsageAndQuit("Bad name/alias: " + e.getLocalizedMessage());
+                    }
+                } else if (arg.equals("--retry-budget")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    int v = Integer.parseInt(argsList.pop());
+                    if (v <= 0) {
+                        printUsageAndQuit("Retry budget must be > 0");
+                    }
+                    properties.put("chaos.retryBudget", v);
+                } else if (arg.equals("--limiter")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    try {
+                        String limiter = argsList.pop();
 
-                        properties.put("chaos.lockType", EnumSet.allOf(LockType.class)
+                        properties.put("chaos.limiterType", EnumSet.allOf(LimiterType.class)
                                 .stream()
-                                .filter(i -> i.alias().equalsIgnoreCase(lockType) || i.name()
-                                        .equalsIgnoreCase(lockType))
+                                .filter(i -> i.alias().equalsIgnoreCase(limiter) || i.name().equalsIgnoreCase(limiter))
                                 .findFirst()
-                                .orElseGet(() -> LockType.valueOf(lockType)));
+                                .orElseGet(() -> LimiterType.valueOf(limiter)));
                     } catch (IllegalArgumentException e) {
                         printUsageAndQuit("Bad name/alias: " + e.getLocalizedMessage());
                     }
@@ -106,6 +241,10 @@ public class Main {
                         printUsageAndQuit("Contention level must be a multiple of 2 and >= 2");
                     }
                     properties.put("chaos.contentionLevel", v);
+                } else if (arg.equals("--batch-legs")) {
+                    properties.put("chaos.batchLegs", true);
+                } else if (arg.equals("--multi-key-reads")) {
+                    properties.put("chaos.multiKeyReads", true);
                 } else if (arg.equals("--ratio")) {
                     if (argsList.isEmpty()) {
                         printUsageAndQuit("Expected value for " + arg);
@@ -119,11 +258,17 @@ public class Main {
                     if (argsList.isEmpty()) {
                         printUsageAndQuit("Expected value for " + arg);
                     }
-                    int v = Integer.parseInt(argsList.pop());
-                    if (v <= 0) {
+                    List<Integer> counts = Arrays.stream(argsList.pop().split(","))
+                            .map(String::trim)
+                            .map(Integer::parseInt)
+                            .toList();
+                    if (counts.stream().anyMatch(v -> v <= 0)) {
                         printUsageAndQuit("Workers must be > 0");
                     }
-                    properties.put("chaos.workers", v);
+                    properties.put("chaos.workers", counts.get(0));
+                    if (counts.size() > 1) {
+                        properties.put("chaos.workerCounts", StringUtils.collectionToCommaDelimitedString(counts));
+                    }
                 } else if (arg.equals("--iterations")) {
                     if (argsList.isEmpty()) {
                         printUsageAndQuit("Expected value for " + arg);
@@ -133,6 +278,104 @@ public class Main {
                         printUsageAndQuit("Iterations must be > 0");
                     }
                     properties.put("chaos.iterations", v);
+                } else if (arg.equals("--rate")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    int v = Multiplier.parseInt(argsList.pop());
+                    if (v <= 0) {
+                        printUsageAndQuit("Rate must be > 0");
+                    }
+                    properties.put("chaos.rate", v);
+                } else if (arg.equals("--duration")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    Duration v = parseDuration(argsList.pop());
+                    if (v.isZero() || v.isNegative()) {
+                        printUsageAndQuit("Duration must be > 0");
+                    }
+                    properties.put("chaos.duration", v);
+                } else if (arg.equals("--warmup")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    Duration v = parseDuration(argsList.pop());
+                    if (v.isNegative()) {
+                        printUsageAndQuit("Warmup must be >= 0");
+                    }
+                    properties.put("chaos.warmup", v);
+                } else if (arg.equals("--cooldown")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    Duration v = parseDuration(argsList.pop());
+                    if (v.isNegative()) {
+                        printUsageAndQuit("Cooldown must be >= 0");
+                    }
+                    properties.put("chaos.cooldown", v);
+                } else if (arg.equals("--coordinator")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    String[] parts = argsList.pop().split(":");
+                    if (parts.length != 2) {
+                        printUsageAndQuit("Expected <port>:<agents> for " + arg);
+                    }
+                    int port = Integer.parseInt(parts[0]);
+                    int agents = Integer.parseInt(parts[1]);
+                    if (port <= 0 || agents <= 0) {
+                        printUsageAndQuit("Port and number of agents must be > 0");
+                    }
+                    properties.put("chaos.coordinatorPort", port);
+                    properties.put("chaos.agents", agents);
+                } else if (arg.equals("--agent")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    String v = argsList.pop();
+                    if (!v.matches("[^:]+:\\d+")) {
+                        printUsageAndQuit("Expected <host>:<port> for " + arg);
+                    }
+                    properties.put("chaos.coordinatorAddress", v);
+                } else if (arg.equals("--mix")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    String v = argsList.pop();
+                    try {
+                        WorkloadMix.parse(v);
+                    } catch (IllegalArgumentException e) {
+                        printUsageAndQuit("Bad workload mix: " + v + " (" + e.getMessage() + ")");
+                    }
+                    properties.put("chaos.workloadMix", v);
+                    workloadType = WorkloadType.MIXED;
+                    properties.put("chaos.workloadType", workloadType);
+                } else if (arg.equals("--sweep-threads")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    String v = argsList.pop();
+                    try {
+                        ThreadSweep.parse(v);
+                    } catch (IllegalArgumentException e) {
+                        printUsageAndQuit("Bad thread sweep: " + v + " (" + e.getMessage() + ")");
+                    }
+                    properties.put("chaos.sweepThreads", v);
+                } else if (arg.equals("--report-interval")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    Duration v = parseDuration(argsList.pop());
+                    if (v.toMillis() < 500) {
+                        printUsageAndQuit("Report interval must be >= 500ms");
+                    }
+                    properties.put("chaos.reportInterval", v);
+                } else if (arg.equals("--report-file")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    properties.put("chaos.reportFile", argsList.pop());
                 } else if (arg.equals("--accounts")) {
                     if (argsList.isEmpty()) {
                         printUsageAndQuit("Expected value for " + arg);
@@ -142,6 +385,44 @@ public class Main {
                         printUsageAndQuit("Accounts must be > 0");
                     }
                     properties.put("chaos.numAccounts", v);
+                } else if (arg.equals("--seed-threads")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    int v = Integer.parseInt(argsList.pop());
+                    if (v <= 0) {
+                        printUsageAndQuit("Seed threads must be > 0");
+                    }
+                    properties.put("chaos.seedThreads", v);
+                } else if (arg.equals("--verify-threads")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    int v = Integer.parseInt(argsList.pop());
+                    if (v <= 0) {
+                        printUsageAndQuit("Verify threads must be > 0");
+                    }
+                    properties.put("chaos.verifyThreads", v);
+                } else if (arg.equals("--verify-snapshot")) {
+                    properties.put("chaos.verifySnapshot", true);
+                } else if (arg.equals("--verify-interval")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    Duration v = parseDuration(argsList.pop());
+                    if (v.isNegative()) {
+                        printUsageAndQuit("Verify interval must be >= 0");
+                    }
+                    properties.put("chaos.verifyInterval", v);
+                } else if (arg.equals("--snapshot-offset")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    Duration v = parseDuration(argsList.pop());
+                    if (v.isNegative() || v.isZero()) {
+                        printUsageAndQuit("Snapshot offset must be > 0");
+                    }
+                    properties.put("chaos.snapshotOffset", v);
                 } else if (arg.equals("--selection")) {
                     if (argsList.isEmpty()) {
                         printUsageAndQuit("Expected value for " + arg);
@@ -153,6 +434,21 @@ public class Main {
                     properties.put("chaos.selection", v);
                 } else if (arg.equals("--sequential")) {
                     properties.put("chaos.randomSelection", false);
+                } else if (arg.equals("--sampling")) {
+                    if (argsList.isEmpty()) {
+                        printUsageAndQuit("Expected value for " + arg);
+                    }
+                    try {
+                        String sampling = argsList.pop();
+
+                        properties.put("chaos.samplingMethod", EnumSet.allOf(SamplingMethod.class)
+                                .stream()
+                                .filter(i -> i.alias().equalsIgnoreCase(sampling) || i.name().equalsIgnoreCase(sampling))
+                                .findFirst()
+                                .orElseGet(() -> SamplingMethod.valueOf(sampling)));
+                    } catch (IllegalArgumentException e) {
+                        printUsageAndQuit("Bad name/alias: " + e.getLocalizedMessage());
+                    }
                 } else if (arg.equals("--url")) {
                     if (argsList.isEmpty()) {
                         printUsageAndQuit("Expected value for " + arg);
@@ -180,11 +476,7 @@ public class Main {
                 }
             } else {
                 try {
-                    workloadType = EnumSet.allOf(WorkloadType.class)
-                            .stream()
-                            .filter(wt -> wt.alias().equalsIgnoreCase(arg) || wt.name().equalsIgnoreCase(arg))
-                            .findFirst()
-                            .orElseGet(() -> WorkloadType.valueOf(arg));
+                    workloadType = WorkloadType.of(arg);
                     properties.put("chaos.workloadType", workloadType);
                 } catch (IllegalArgumentException e) {
                     printUsageAndQuit("Unknown workload: " + arg);
@@ -227,6 +519,68 @@ public class Main {
         if (workloadType == null) {
             printUsageAndQuit("Missing workload type");
         }
+
+        if (workloadType == WorkloadType.MIXED && !properties.containsKey("chaos.workloadMix")) {
+            printUsageAndQuit("Missing workload mix (--mix)");
+        }
+
+        if (properties.containsKey("chaos.sweepThreads") && properties.containsKey("chaos.workerCounts")) {
+            printUsageAndQuit("Use either a thread sweep or a list of threads");
+        }
+
+        if (properties.containsKey("chaos.sweepThreads")
+                && (properties.containsKey("chaos.isolationLevels")
+                || properties.containsKey("chaos.lockTypes")
+                || properties.containsKey("chaos.retryModes")
+                || properties.containsKey("chaos.lockOrders")
+                || properties.containsKey("chaos.executionModes"))) {
+            printUsageAndQuit("Use either a thread sweep or a parameter matrix");
+        }
+
+        // Size the pool for the largest step, so steps don't measure pool queueing
+        int largestStep = 0;
+        if (properties.containsKey("chaos.sweepThreads")) {
+            largestStep = ThreadSweep.parse((String) properties.get("chaos.sweepThreads")).getSteps().stream()
+                    .mapToInt(Integer::intValue).max().orElse(0);
+        }
+        if (properties.containsKey("chaos.workerCounts")) {
+            largestStep = Arrays.stream(((String) properties.get("chaos.workerCounts")).split(","))
+                    .mapToInt(Integer::parseInt).max().orElse(0);
+        }
+        if (largestStep > DEFAULT_POOL_SIZE) {
+            // Overrides application.yml, unlike the default properties
+            System.setProperty("spring.datasource.hikari.maximum-pool-size", Integer.toString(largestStep));
+        }
+
+        if (properties.containsKey("chaos.agents") && properties.containsKey("chaos.coordinatorAddress")) {
+            printUsageAndQuit("Use either --coordinator or --agent");
+        }
+
+        if (properties.containsKey("chaos.agents") && properties.containsKey("chaos.rate")
+                && (int) properties.get("chaos.rate") < (int) properties.get("chaos.agents")) {
+            // Every agent needs a share of at least one transaction per second
+            printUsageAndQuit("Rate must be >= number of agents");
+        }
+
+        if ((properties.containsKey("chaos.agents") || properties.containsKey("chaos.coordinatorAddress"))
+                && (properties.containsKey("chaos.sweepThreads")
+                || properties.containsKey("chaos.isolationLevels")
+                || properties.containsKey("chaos.lockTypes")
+                || properties.containsKey("chaos.retryModes")
+                || properties.containsKey("chaos.lockOrders")
+                || properties.containsKey("chaos.executionModes")
+                || properties.containsKey("chaos.workerCounts"))) {
+            printUsageAndQuit("Sweeps and lists are not supported in coordinated runs");
+        }
+    }
+
+    private static Duration parseDuration(String expression) {
+        try {
+            return DurationStyle.detectAndParse(expression);
+        } catch (IllegalArgumentException e) {
+            printUsageAndQuit("Bad duration: " + expression);
+            return Duration.ZERO;
+        }
     }
 
     private static void printUsageAndQuit(String note) {
@@ -266,35 +620,108 @@ public class Main {
 
         output.header("Common Workload Options:");
         {
-            output.printLeft("--isolation", "set isolation level", "(1SR)");
+            output.printLeft("--isolation", "set isolation level, or a comma separated list", "(1SR)");
 
             EnumSet.allOf(IsolationLevel.class)
                     .forEach(isolationLevel -> output.printLeft("  " + isolationLevel.name(),
                             isolationLevel.alias()));
 
-            output.printLeft("--locking", "enable optimistic (cas) or pessimistic locking", "(NONE)");
+            output.printLeft("--locking", "enable optimistic (cas) or pessimistic locking, or a list", "(NONE)");
 
             EnumSet.allOf(LockType.class)
                     .forEach(lockType -> output.printLeft("  " + lockType.name(), lockType.alias()));
 
+            output.printLeft("--lock-order", "order of row locks in multi-row transactions (P4), or a list",
+                    "(NONE)");
+
+            EnumSet.allOf(LockOrder.class)
+                    .forEach(lockOrder -> output.printLeft("  " + lockOrder.name(), lockOrder.alias()));
+
             int workers = Runtime.getRuntime().availableProcessors() * 2;
 
-            output.printLeft("--threads <num>", "max number of threads", "(host vCPUs x 2 = " + workers + ")");
+            output.printLeft("--threads <num>", "max number of threads, or a list", "(host vCPUs x 2 = " + workers + ")");
+            output.info("  Hint: lists run every combination on the same dataset (ex: --isolation rc,rr --locking na,fu).");
             output.printLeft("--iterations <num>", "number of cycles to run", "(1K)");
+            output.printLeft("--virtual-threads", "run each worker or arrival on a virtual thread", "(false)");
+            output.info("  Hint: combine with a high thread count to queue in the connection pool.");
+            output.printLeft("--rate <num>", "open-loop arrival rate in tx/s rather than closed-loop", "(<none>)");
+            output.info("  Hint: threads then cap the number of in-flight transactions.");
+            output.printLeft("--duration <time>", "run for a fixed time rather than iterations (ex: 10m)", "(<none>)");
+            output.printLeft("--warmup <time>", "warmup time excluded from the results (ex: 60s)", "(0s)");
+            output.printLeft("--cooldown <time>", "cooldown time excluded from the results (ex: 10s)", "(0s)");
+            output.printLeft("--sweep-threads <start:end:step>", "step-load over thread counts (ex: 4:256:x2 or 8:64:+8)",
+                    "(<none>)");
+            output.info("  Hint: each step runs for --duration (or 30s), on the same dataset.");
+            output.info("  Hint: the connection pool grows to the largest step above its default of 128.");
+            output.printLeft("--report-interval <time>", "write interval reports during the run (ex: 1s)", "(<none>)");
+            output.printLeft("--report-file <path>", "interval report file, JSON lines if ending with .jsonl",
+                    "(chaos-intervals.csv)");
             output.printLeft("--accounts <num>", "number of accounts to create and randomize between", "(50K)");
+            output.printLeft("--seed-threads <num>", "number of connections to create accounts on in parallel",
+                    "(8)");
+            output.printLeft("--verify-threads <num>", "number of connections to run consistency checks on",
+                    "(8)");
+            output.printLeft("--verify-snapshot", "run consistency checks AS OF SYSTEM TIME (CockroachDB only)",
+                    "(false)");
+            output.printLeft("--verify-interval <duration>",
+                    "check invariants against a snapshot at this interval during the run (P4, A5A, A5B)", "(0s)");
+            output.printLeft("--snapshot-offset <duration>",
+                    "how far in the past snapshot reads are taken (CockroachDB only)", "(1s)");
             output.printLeft("--selection <num>", "random selection of accounts to pick from", "(500)");
             output.info("  Hint: decrease selection to increase contention.");
             output.printLeft("--sequential", "sequential selection of accounts rather than random", "(false)");
+            output.printLeft("--sampling", "how the random selection of accounts is drawn", "(RANGE_PROBE)");
+
+            EnumSet.allOf(SamplingMethod.class)
+                    .forEach(samplingMethod -> output.printLeft("  " + samplingMethod.name(), samplingMethod.alias()));
             output.printLeft("--skip-retry", "skip client-side retries", "(false)");
-            output.printLeft("--jitter", "enable exponential backoff jitter on client-side retries", "(false)");
+            output.printLeft("--jitter", "enable jitter for exponential and fixed retry backoff", "(false)");
             output.info("  Hint: skip jitter for more comparable results between isolation levels.");
+            output.printLeft("--backoff", "retry backoff strategy", "(EXPONENTIAL)");
+
+            EnumSet.allOf(BackoffType.class)
+                    .forEach(backoffType -> output.printLeft("  " + backoffType.name(), backoffType.alias()));
+
+            output.printLeft("--retry-mode", "retry by full restart or from a savepoint (CockroachDB), or a list",
+                    "(RESTART)");
+
+            EnumSet.allOf(RetryMode.class)
+                    .forEach(retryMode -> output.printLeft("  " + retryMode.name(), retryMode.alias()));
+
+            output.printLeft("--retry-budget <pct>", "max retries as percent of first attempts, then shed load",
+                    "(<none>)");
+            output.printLeft("--limiter", "adaptive limit of in-flight transactions, up to threads", "(NONE)");
+
+            EnumSet.allOf(LimiterType.class)
+                    .forEach(limiterType -> output.printLeft("  " + limiterType.name(), limiterType.alias()));
+            output.info("");
+        }
+
+        output.header("Coordinated Run Options:");
+        {
+            output.printLeft("--coordinator <port>:<agents>", "seed, start and merge results from a number of agents",
+                    "(<none>)");
+            output.printLeft("--agent <host>:<port>", "run a slice of the load for a coordinator", "(<none>)");
+            output.info("  Hint: agents use the same workload and database options as the coordinator.");
             output.info("");
         }
 
         output.header("Specific Workload Options:");
         {
             output.printLeft("--contention <num>", "contention level for the P4 lost update workload", "(2)");
+            output.printLeft("--execution", "run P4 and A5A transfers client-side or as a stored procedure, or a list",
+                    "(CLIENT)");
+
+            EnumSet.allOf(ExecutionMode.class)
+                    .forEach(executionMode -> output.printLeft("  " + executionMode.name(), executionMode.alias()));
+
+            output.printLeft("--batch-legs", "read and write all P4 legs with one statement each", "(false)");
+            output.printLeft("--multi-key-reads", "read the P2/P3 selection with one statement per repetition",
+                    "(false)");
             output.printLeft("--ratio <num>", "read-write ratio for the P2 fuzzy read workload", "(.9)");
+            output.printLeft("--mix <type:weight,..>", "run a weighted mix of workloads (ex: P4:60,A5A:30,P2:10)",
+                    "(<none>)");
+            output.info("  Hint: P3 can't be part of a mix, and the mix replaces the workload argument.");
             output.info("");
         }
 
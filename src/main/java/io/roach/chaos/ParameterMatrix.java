@@ -0,0 +1,78 @@
+package io.roach.chaos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.roach.chaos.model.ExecutionMode;
+import io.roach.chaos.model.IsolationLevel;
+import io.roach.chaos.model.LockOrder;
+import io.roach.chaos.model.LockType;
+import io.roach.chaos.util.RetryMode;
+
+/**
+ * Cartesian product of the isolation levels, lock types, thread counts, retry modes,
+ * lock orders and execution modes to run in one process. Axes with no list of values
+ * fall back to the single configured value.
+ */
+public class ParameterMatrix {
+    public record Cell(IsolationLevel isolationLevel, LockType lockType, int workers, RetryMode retryMode,
+                       LockOrder lockOrder, ExecutionMode executionMode) {
+        public void applyTo(Settings settings) {
+            settings.setIsolationLevel(isolationLevel);
+            settings.setLockType(lockType);
+            settings.setWorkers(workers);
+            settings.setRetryMode(retryMode);
+            settings.setLockOrder(lockOrder);
+            settings.setExecutionMode(executionMode);
+        }
+
+        @Override
+        public String toString() {
+            return "%s/%s/%d/%s/%s/%s".formatted(isolationLevel.alias(), lockType.alias(), workers,
+                    retryMode.alias(), lockOrder.alias(), executionMode.alias());
+        }
+    }
+
+    public static ParameterMatrix of(Settings settings) {
+        List<IsolationLevel> isolationLevels = settings.getIsolationLevels().isEmpty()
+                ? List.of(settings.getIsolationLevel()) : settings.getIsolationLevels();
+        List<LockType> lockTypes = settings.getLockTypes().isEmpty()
+                ? List.of(settings.getLockType()) : settings.getLockTypes();
+        List<Integer> workerCounts = settings.getWorkerCounts().isEmpty()
+                ? List.of(settings.getWorkers()) : settings.getWorkerCounts();
+        List<RetryMode> retryModes = settings.getRetryModes().isEmpty()
+                ? List.of(settings.getRetryMode()) : settings.getRetryModes();
+        List<LockOrder> lockOrders = settings.getLockOrders().isEmpty()
+                ? List.of(settings.getLockOrder()) : settings.getLockOrders();
+        List<ExecutionMode> executionModes = settings.getExecutionModes().isEmpty()
+                ? List.of(settings.getExecutionMode()) : settings.getExecutionModes();
+
+        List<Cell> cells = new ArrayList<>();
+        isolationLevels.forEach(isolationLevel ->
+                lockTypes.forEach(lockType ->
+                        workerCounts.forEach(workers ->
+                                retryModes.forEach(retryMode ->
+                                        lockOrders.forEach(lockOrder ->
+                                                executionModes.forEach(executionMode ->
+                                                        cells.add(new Cell(isolationLevel, lockType, workers,
+                                                                retryMode, lockOrder, executionMode))))))));
+
+        return new ParameterMatrix(cells);
+    }
+
+    private final List<Cell> cells;
+
+    private ParameterMatrix(List<Cell> cells) {
+        this.cells = Collections.unmodifiableList(cells);
+    }
+
+    public List<Cell> getCells() {
+        return cells;
+    }
+
+    @Override
+    public String toString() {
+        return cells.toString();
+    }
+}
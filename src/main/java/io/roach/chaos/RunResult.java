@@ -0,0 +1,151 @@
+package io.roach.chaos;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.Snapshot;
+
+/**
+ * Metrics captured by a workload run, separated by phase so that samples from the
+ * warmup and cooldown phases stay out of the headline numbers.
+ */
+public class RunResult {
+    public enum Phase {
+        WARMUP,
+        MEASURE,
+        COOLDOWN
+    }
+
+    private final Map<Phase, Snapshot> snapshots = new EnumMap<>(Phase.class);
+
+    private final Map<Phase, Duration> durations = new EnumMap<>(Phase.class);
+
+    private Map<String, Long> pinnedSites = Map.of();
+
+    private int anomalies;
+
+    private final List<LimitSample> limitSamples = new ArrayList<>();
+
+    /**
+     * Concurrency limit in effect at some point of the run, with the goodput of the
+     * interval leading up to it.
+     */
+    public record LimitSample(Duration elapsed, int limit, double goodput) {
+    }
+
+    public RunResult add(Phase phase, Snapshot snapshot, Duration duration) {
+        snapshots.computeIfAbsent(phase, x -> new Snapshot()).add(snapshot);
+        durations.merge(phase, duration, Duration::plus);
+        return this;
+    }
+
+    /**
+     * Merge the result of a run that ran concurrently with this one, like on another
+     * agent. Metrics add up while phase durations overlap rather than add up.
+     */
+    public RunResult merge(RunResult other) {
+        other.snapshots.forEach((phase, snapshot) ->
+                snapshots.computeIfAbsent(phase, x -> new Snapshot()).add(snapshot));
+        other.durations.forEach((phase, duration) ->
+                durations.merge(phase, duration, (a, b) -> a.compareTo(b) >= 0 ? a : b));
+
+        Map<String, Long> sites = new LinkedHashMap<>(pinnedSites);
+        other.pinnedSites.forEach((site, count) -> sites.merge(site, count, Long::sum));
+        this.pinnedSites = sites;
+
+        // Agents sample the limit at the same interval from the same start, so aligned samples add up
+        for (int i = 0; i < other.limitSamples.size(); i++) {
+            LimitSample sample = other.limitSamples.get(i);
+            if (i < limitSamples.size()) {
+                LimitSample own = limitSamples.get(i);
+                limitSamples.set(i, new LimitSample(
+                        own.elapsed().compareTo(sample.elapsed()) >= 0 ? own.elapsed() : sample.elapsed(),
+                        own.limit() + sample.limit(),
+                        own.goodput() + sample.goodput()));
+            } else {
+                limitSamples.add(sample);
+            }
+        }
+
+        this.anomalies += other.anomalies;
+        return this;
+    }
+
+    public Snapshot getSnapshot(Phase phase) {
+        return snapshots.getOrDefault(phase, new Snapshot());
+    }
+
+    public Duration getDuration(Phase phase) {
+        return durations.getOrDefault(phase, Duration.ZERO);
+    }
+
+    public Snapshot getMeasurement() {
+        return getSnapshot(Phase.MEASURE);
+    }
+
+    public Duration getMeasurementTime() {
+        return getDuration(Phase.MEASURE);
+    }
+
+    public Snapshot getTotal() {
+        Snapshot total = new Snapshot();
+        snapshots.values().forEach(total::add);
+        return total;
+    }
+
+    public Map<String, Long> getPinnedSites() {
+        return pinnedSites;
+    }
+
+    public RunResult setPinnedSites(Map<String, Long> pinnedSites) {
+        this.pinnedSites = pinnedSites;
+        return this;
+    }
+
+    public RunResult addLimitSample(LimitSample sample) {
+        limitSamples.add(sample);
+        return this;
+    }
+
+    public List<LimitSample> getLimitSamples() {
+        return Collections.unmodifiableList(limitSamples);
+    }
+
+    public int getAnomalies() {
+        return anomalies;
+    }
+
+    public RunResult setAnomalies(int anomalies) {
+        this.anomalies = anomalies;
+        return this;
+    }
+
+    /**
+     * @return client-side retries per completed transaction
+     */
+    public double getRetryRate(Phase phase) {
+        Snapshot snapshot = getSnapshot(phase);
+        long transactions = snapshot.counter(Metrics.COMMITS) + snapshot.counter(Metrics.FAILS);
+        return transactions > 0 ? (double) snapshot.counter(Metrics.RETRIES) / transactions : 0;
+    }
+
+    /**
+     * @return share of the retried transactions that eventually committed
+     */
+    public double getRetrySuccessRate(Phase phase) {
+        Snapshot snapshot = getSnapshot(phase);
+        long retried = snapshot.counter(Metrics.RETRIED);
+        return retried > 0 ? (double) snapshot.counter(Metrics.RECOVERED) / retried : 0;
+    }
+
+    public double getThroughput(Phase phase) {
+        long millis = getDuration(phase).toMillis();
+        return millis > 0 ? getSnapshot(phase).counter(Metrics.COMMITS) * 1000.0 / millis : 0;
+    }
+}
@@ -1,10 +1,19 @@
 package io.roach.chaos;
 
+import java.time.Duration;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import io.roach.chaos.repository.Dialect;
+import io.roach.chaos.util.BackoffType;
+import io.roach.chaos.util.LimiterType;
+import io.roach.chaos.util.RetryMode;
+import io.roach.chaos.model.ExecutionMode;
 import io.roach.chaos.model.IsolationLevel;
+import io.roach.chaos.model.LockOrder;
 import io.roach.chaos.model.LockType;
+import io.roach.chaos.model.SamplingMethod;
 import io.roach.chaos.workload.WorkloadType;
 
 @ConfigurationProperties("chaos")
@@ -19,12 +28,26 @@ public class Settings {
 
     private boolean retryJitter;
 
+    private BackoffType backoffType = BackoffType.EXPONENTIAL;
+
+    private LimiterType limiterType = LimiterType.NONE;
+
+    private int retryBudget;
+
+    private RetryMode retryMode = RetryMode.RESTART;
+
+    private LockOrder lockOrder = LockOrder.NONE;
+
+    private ExecutionMode executionMode = ExecutionMode.CLIENT;
+
     private boolean exportCsv;
 
     private boolean quit;
 
     private boolean randomSelection = true;
 
+    private SamplingMethod samplingMethod = SamplingMethod.RANGE_PROBE;
+
     private boolean debugProxy;
 
     private boolean skipCreate;
@@ -35,8 +58,22 @@ public class Settings {
 
     private int contentionLevel = 2;
 
+    private boolean batchLegs;
+
+    private boolean multiKeyReads;
+
     private int numAccounts = 50_000;
 
+    private int seedThreads = 8;
+
+    private int verifyThreads = 8;
+
+    private boolean verifySnapshot;
+
+    private Duration verifyInterval = Duration.ZERO;
+
+    private Duration snapshotOffset = Duration.ofSeconds(1);
+
     private int selection = 500;
 
     private int iterations = 1_000;
@@ -45,8 +82,46 @@ public class Settings {
 
     private int workers;
 
+    private int rate;
+
+    private boolean virtualThreads;
+
+    private Duration duration;
+
+    private Duration warmup = Duration.ZERO;
+
+    private Duration cooldown = Duration.ZERO;
+
+    private Duration reportInterval;
+
+    private String reportFile = "chaos-intervals.csv";
+
+    private String sweepThreads;
+
+    private String workloadMix;
+
+    private int coordinatorPort;
+
+    private int agents;
+
+    private String coordinatorAddress;
+
+    private List<IsolationLevel> isolationLevels = List.of();
+
+    private List<LockType> lockTypes = List.of();
+
+    private List<Integer> workerCounts = List.of();
+
+    private List<RetryMode> retryModes = List.of();
+
+    private List<LockOrder> lockOrders = List.of();
+
+    private List<ExecutionMode> executionModes = List.of();
+
     private String initFile;
 
+    private String procedureFile;
+
     public double getReadWriteRatio() {
         return readWriteRatio;
     }
@@ -63,6 +138,14 @@ public class Settings {
         this.randomSelection = randomSelection;
     }
 
+    public SamplingMethod getSamplingMethod() {
+        return samplingMethod;
+    }
+
+    public void setSamplingMethod(SamplingMethod samplingMethod) {
+        this.samplingMethod = samplingMethod;
+    }
+
     public boolean isQuit() {
         return quit;
     }
@@ -79,6 +162,14 @@ public class Settings {
         this.initFile = initFile;
     }
 
+    public String getProcedureFile() {
+        return procedureFile;
+    }
+
+    public void setProcedureFile(String procedureFile) {
+        this.procedureFile = procedureFile;
+    }
+
     public int getContentionLevel() {
         return contentionLevel;
     }
@@ -87,6 +178,22 @@ public class Settings {
         this.contentionLevel = contentionLevel;
     }
 
+    public boolean isBatchLegs() {
+        return batchLegs;
+    }
+
+    public void setBatchLegs(boolean batchLegs) {
+        this.batchLegs = batchLegs;
+    }
+
+    public boolean isMultiKeyReads() {
+        return multiKeyReads;
+    }
+
+    public void setMultiKeyReads(boolean multiKeyReads) {
+        this.multiKeyReads = multiKeyReads;
+    }
+
     public boolean isDebugProxy() {
         return debugProxy;
     }
@@ -143,6 +250,106 @@ public class Settings {
         this.numAccounts = numAccounts;
     }
 
+    public int getSeedThreads() {
+        return seedThreads;
+    }
+
+    public void setSeedThreads(int seedThreads) {
+        this.seedThreads = seedThreads;
+    }
+
+    public int getVerifyThreads() {
+        return verifyThreads;
+    }
+
+    public void setVerifyThreads(int verifyThreads) {
+        this.verifyThreads = verifyThreads;
+    }
+
+    public boolean isVerifySnapshot() {
+        return verifySnapshot;
+    }
+
+    public void setVerifySnapshot(boolean verifySnapshot) {
+        this.verifySnapshot = verifySnapshot;
+    }
+
+    public Duration getVerifyInterval() {
+        return verifyInterval;
+    }
+
+    public void setVerifyInterval(Duration verifyInterval) {
+        this.verifyInterval = verifyInterval;
+    }
+
+    public Duration getSnapshotOffset() {
+        return snapshotOffset;
+    }
+
+    public void setSnapshotOffset(Duration snapshotOffset) {
+        this.snapshotOffset = snapshotOffset;
+    }
+
+    public boolean isOnlineVerify() {
+        return !verifyInterval.isZero();
+    }
+
+    public BackoffType getBackoffType() {
+        return backoffType;
+    }
+
+    public void setBackoffType(BackoffType backoffType) {
+        this.backoffType = backoffType;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public boolean isProcedureMode() {
+        return executionMode == ExecutionMode.PROCEDURE || executionModes.contains(ExecutionMode.PROCEDURE);
+    }
+
+    public LockOrder getLockOrder() {
+        return lockOrder;
+    }
+
+    public void setLockOrder(LockOrder lockOrder) {
+        this.lockOrder = lockOrder;
+    }
+
+    public RetryMode getRetryMode() {
+        return retryMode;
+    }
+
+    public void setRetryMode(RetryMode retryMode) {
+        this.retryMode = retryMode;
+    }
+
+    public int getRetryBudget() {
+        return retryBudget;
+    }
+
+    public void setRetryBudget(int retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+
+    public LimiterType getLimiterType() {
+        return limiterType;
+    }
+
+    public void setLimiterType(LimiterType limiterType) {
+        this.limiterType = limiterType;
+    }
+
+    public boolean isAdaptiveLimit() {
+        return limiterType != LimiterType.NONE;
+    }
+
     public boolean isRetryJitter() {
         return retryJitter;
     }
@@ -191,6 +398,183 @@ public class Settings {
         this.workers = workers;
     }
 
+    public int getRate() {
+        return rate;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    public boolean isOpenLoop() {
+        return rate > 0;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+
+    public Duration getCooldown() {
+        return cooldown;
+    }
+
+    public void setCooldown(Duration cooldown) {
+        this.cooldown = cooldown;
+    }
+
+    public boolean isTimeBoxed() {
+        return duration != null;
+    }
+
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+
+    public void setReportInterval(Duration reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    public boolean isIntervalReporting() {
+        return reportInterval != null;
+    }
+
+    public String getSweepThreads() {
+        return sweepThreads;
+    }
+
+    public void setSweepThreads(String sweepThreads) {
+        this.sweepThreads = sweepThreads;
+    }
+
+    public boolean isSweep() {
+        return sweepThreads != null;
+    }
+
+    public ThreadSweep getThreadSweep() {
+        return ThreadSweep.parse(sweepThreads);
+    }
+
+    public int getCoordinatorPort() {
+        return coordinatorPort;
+    }
+
+    public void setCoordinatorPort(int coordinatorPort) {
+        this.coordinatorPort = coordinatorPort;
+    }
+
+    public int getAgents() {
+        return agents;
+    }
+
+    public void setAgents(int agents) {
+        this.agents = agents;
+    }
+
+    public boolean isCoordinator() {
+        return agents > 0;
+    }
+
+    public String getCoordinatorAddress() {
+        return coordinatorAddress;
+    }
+
+    public void setCoordinatorAddress(String coordinatorAddress) {
+        this.coordinatorAddress = coordinatorAddress;
+    }
+
+    public boolean isAgent() {
+        return coordinatorAddress != null;
+    }
+
+    public String getWorkloadMix() {
+        return workloadMix;
+    }
+
+    public void setWorkloadMix(String workloadMix) {
+        this.workloadMix = workloadMix;
+    }
+
+    public List<IsolationLevel> getIsolationLevels() {
+        return isolationLevels;
+    }
+
+    public void setIsolationLevels(List<IsolationLevel> isolationLevels) {
+        this.isolationLevels = isolationLevels;
+    }
+
+    public List<LockType> getLockTypes() {
+        return lockTypes;
+    }
+
+    public void setLockTypes(List<LockType> lockTypes) {
+        this.lockTypes = lockTypes;
+    }
+
+    public List<Integer> getWorkerCounts() {
+        return workerCounts;
+    }
+
+    public void setWorkerCounts(List<Integer> workerCounts) {
+        this.workerCounts = workerCounts;
+    }
+
+    public List<RetryMode> getRetryModes() {
+        return retryModes;
+    }
+
+    public void setRetryModes(List<RetryMode> retryModes) {
+        this.retryModes = retryModes;
+    }
+
+    public List<LockOrder> getLockOrders() {
+        return lockOrders;
+    }
+
+    public void setLockOrders(List<LockOrder> lockOrders) {
+        this.lockOrders = lockOrders;
+    }
+
+    public List<ExecutionMode> getExecutionModes() {
+        return executionModes;
+    }
+
+    public void setExecutionModes(List<ExecutionMode> executionModes) {
+        this.executionModes = executionModes;
+    }
+
+    public boolean isMatrix() {
+        return isolationLevels.size() > 1 || lockTypes.size() > 1 || workerCounts.size() > 1
+                || retryModes.size() > 1 || lockOrders.size() > 1 || executionModes.size() > 1;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public void setReportFile(String reportFile) {
+        this.reportFile = reportFile;
+    }
+
     public WorkloadType getWorkloadType() {
         return workloadType;
     }
@@ -0,0 +1,107 @@
+package io.roach.chaos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Worker thread counts for a concurrency sweep, parsed from an expression in the
+ * form of {@code start:end:step} where the step is either multiplicative ({@code x2})
+ * or additive ({@code +8}). The end value is always included as the last step.
+ */
+public class ThreadSweep {
+    /**
+     * Minimum share of linear scaling a step must achieve to not count as saturated.
+     */
+    private static final double SCALING_THRESHOLD = 0.2;
+
+    public record Step(int threads, double throughput, double retryRate, double p99) {
+    }
+
+    public static ThreadSweep parse(String expression) {
+        String[] parts = expression.split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Expected start:end:step, ex 4:256:x2 or 8:64:+8");
+        }
+
+        final int start = Integer.parseInt(parts[0].trim());
+        final int end = Integer.parseInt(parts[1].trim());
+        final String step = parts[2].trim().toLowerCase();
+
+        if (start <= 0 || end < start) {
+            throw new IllegalArgumentException("Expected 0 < start <= end");
+        }
+
+        final boolean multiply;
+        if (step.startsWith("x") || step.startsWith("*")) {
+            multiply = true;
+        } else if (step.startsWith("+")) {
+            multiply = false;
+        } else {
+            throw new IllegalArgumentException("Expected step as xN or +N");
+        }
+
+        final int factor = Integer.parseInt(step.substring(1));
+        if (multiply ? factor < 2 : factor < 1) {
+            throw new IllegalArgumentException("Step does not increase thread count: " + step);
+        }
+
+        List<Integer> steps = new ArrayList<>();
+        for (long n = start; n < end; n = multiply ? n * factor : n + factor) {
+            steps.add((int) n);
+        }
+        steps.add(end);
+
+        return new ThreadSweep(steps);
+    }
+
+    private final List<Integer> steps;
+
+    private ThreadSweep(List<Integer> steps) {
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    public List<Integer> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Find the saturation point, which is the last step before the throughput gain
+     * of adding threads falls below a fraction of linear scaling (or turns negative).
+     *
+     * @return index of the saturation step or -1 if throughput scaled over all steps
+     */
+    public static int saturationIndex(List<Step> steps) {
+        for (int i = 1; i < steps.size(); i++) {
+            Step prev = steps.get(i - 1);
+            Step next = steps.get(i);
+            if (prev.throughput() <= 0) {
+                continue;
+            }
+            double gain = next.throughput() / prev.throughput() - 1;
+            double ideal = (double) next.threads() / prev.threads() - 1;
+            if (gain < ideal * SCALING_THRESHOLD) {
+                return i - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the step with the highest throughput or -1 if empty
+     */
+    public static int peakIndex(List<Step> steps) {
+        int peak = -1;
+        for (int i = 0; i < steps.size(); i++) {
+            if (peak < 0 || steps.get(i).throughput() > steps.get(peak).throughput()) {
+                peak = i;
+            }
+        }
+        return peak;
+    }
+
+    @Override
+    public String toString() {
+        return steps.toString();
+    }
+}
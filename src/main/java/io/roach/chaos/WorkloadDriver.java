@@ -0,0 +1,427 @@
+package io.roach.chaos;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.roach.chaos.RunResult.LimitSample;
+import io.roach.chaos.RunResult.Phase;
+import io.roach.chaos.metrics.Counter;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.PinningMonitor;
+import io.roach.chaos.metrics.Snapshot;
+import io.roach.chaos.metrics.Timer;
+import io.roach.chaos.util.AsciiArt;
+import io.roach.chaos.util.ColoredLogger;
+import io.roach.chaos.util.ConcurrencyLimiter;
+import io.roach.chaos.util.Exporter;
+import io.roach.chaos.util.JsonLinesExporter;
+import io.roach.chaos.util.RetryBudgetExhaustedException;
+import io.roach.chaos.util.StreamingCsvExporter;
+import io.roach.chaos.workload.InvariantVerifier;
+import io.roach.chaos.workload.Workload;
+
+/**
+ * Drives the workload executions with a fixed number of workers, either for a
+ * number of iterations or for a fixed amount of time. In closed-loop mode each
+ * worker starts the next execution as soon as the previous one completes. In
+ * open-loop mode executions are scheduled at a constant arrival rate and response
+ * times are measured from the intended start time, so that time spent queueing
+ * for a busy worker is not omitted from the latencies.
+ * <p>
+ * With virtual threads, each worker (or in open-loop mode each arrival) runs on its
+ * own virtual thread so that concurrency is bounded by the connection pool rather
+ * than by the executor. Samples are attributed to
+ * the warmup, measurement and cooldown phases by draining the metrics at each
+ * phase boundary, and optionally written out as an interval time series while
+ * the run is in progress.
+ */
+@Component
+public class WorkloadDriver {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final long NO_ARRIVAL = Long.MIN_VALUE;
+
+    private static final Duration PINNING_THRESHOLD = Duration.ofMillis(1);
+
+    private final ColoredLogger logger = ColoredLogger.newInstance();
+
+    @Autowired
+    private Settings settings;
+
+    @Autowired
+    private Workload workload;
+
+    @Autowired
+    private Metrics metrics;
+
+    private Counter commits;
+
+    private Counter fails;
+
+    private Counter budgetExhausted;
+
+    private Counter shed;
+
+    private Timer serviceTimer;
+
+    private Timer responseTimer;
+
+    private ConcurrencyLimiter limiter;
+
+    private long lastLimitUpdate;
+
+    private IntervalReporter intervalReporter;
+
+    public RunResult run() {
+        this.commits = metrics.counter(Metrics.COMMITS);
+        this.fails = metrics.counter(Metrics.FAILS);
+        this.budgetExhausted = metrics.counter(Metrics.BUDGET_EXHAUSTED);
+        this.shed = metrics.counter(Metrics.SHED);
+        this.serviceTimer = metrics.timer(Metrics.SERVICE_TIME);
+        this.responseTimer = metrics.timer(Metrics.RESPONSE_TIME);
+        this.limiter = settings.isAdaptiveLimit()
+                ? new ConcurrencyLimiter(settings.getLimiterType().createInstance(),
+                Math.max(1, settings.getWorkers() / 4), settings.getWorkers())
+                : null;
+
+        final ExecutorService executorService = settings.isVirtualThreads()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(settings.getWorkers());
+
+        final PinningMonitor pinningMonitor = settings.isVirtualThreads()
+                ? new PinningMonitor(metrics).start(PINNING_THRESHOLD)
+                : null;
+
+        final boolean timeBoxed = settings.isTimeBoxed();
+        final long warmupNanos = settings.getWarmup().toNanos();
+        final long measureEndNanos = timeBoxed ? warmupNanos + settings.getDuration().toNanos() : Long.MAX_VALUE;
+        final long cooldownEndNanos = timeBoxed ? measureEndNanos + settings.getCooldown().toNanos() : Long.MAX_VALUE;
+
+        final RunResult result = new RunResult();
+
+        final IntervalReporter intervalReporter = settings.isIntervalReporting()
+                ? intervalReporter()
+                : null;
+
+        final InvariantVerifier verifier = settings.isOnlineVerify() && workload.isVerifiable()
+                ? new InvariantVerifier(workload, metrics)
+                : null;
+
+        try {
+            // Discard anything recorded before the run
+            metrics.drain();
+
+            final long startTime = System.nanoTime();
+            this.lastLimitUpdate = 0;
+            final long deadline = timeBoxed ? startTime + cooldownEndNanos : Long.MAX_VALUE;
+
+            if (verifier != null) {
+                verifier.start(settings.getVerifyInterval());
+            }
+
+            if (intervalReporter != null) {
+                intervalReporter.start(startTime);
+                if (limiter != null) {
+                    intervalReporter.setColumn("limit", limiter::getLimit);
+                }
+                if (verifier != null) {
+                    intervalReporter.setColumn("violations", verifier::drainViolations);
+                }
+            }
+
+            // Shared iteration counter, each worker pulls the next iteration (or arrival slot) until exhausted
+            final AtomicLong issued = new AtomicLong();
+
+            final List<Future<?>> workers = new ArrayList<>();
+
+            if (settings.isVirtualThreads() && settings.isOpenLoop()) {
+                workers.add(executorService.submit(() -> dispatchArrivals(issued, startTime, deadline)));
+            } else {
+                IntStream.rangeClosed(1, settings.getWorkers())
+                        .forEach(value -> workers.add(executorService.submit(
+                                () -> executeUntilDone(issued, startTime, deadline))));
+            }
+
+            executorService.shutdown();
+
+            final long startCount = commits.sum() + fails.sum() + budgetExhausted.sum() + shed.sum();
+
+            final Progress progress = new Progress()
+                    .setStartTime(Instant.now())
+                    .setTotal(settings.getIterations());
+
+            // Drain metrics on each tick, aligned to the phase and report interval boundaries
+            long lastTick = startTime;
+            boolean done = false;
+
+            try {
+                while (!done) {
+                    long elapsed = System.nanoTime() - startTime;
+                    long nextBoundary = elapsed < warmupNanos ? warmupNanos
+                            : elapsed < measureEndNanos ? measureEndNanos : cooldownEndNanos;
+
+                    long timeout = Math.min(TICK_NANOS, nextBoundary - elapsed);
+                    if (intervalReporter != null) {
+                        timeout = Math.min(timeout, intervalReporter.nanosUntilNext(startTime + elapsed));
+                    }
+
+                    done = executorService.awaitTermination(Math.max(1, timeout), TimeUnit.NANOSECONDS);
+
+                    if (done && pinningMonitor != null) {
+                        pinningMonitor.close(); // flush remaining events before the last drain
+                    }
+
+                    if (done && verifier != null) {
+                        verifier.close(); // the last check is included in the last drain
+                    }
+
+                    long now = System.nanoTime();
+                    Phase phase = phaseOf(lastTick - startTime, warmupNanos, measureEndNanos);
+                    Snapshot snapshot = metrics.drain();
+                    result.add(phase, snapshot, Duration.ofNanos(now - lastTick));
+                    lastTick = now;
+
+                    if (limiter != null) {
+                        updateLimit(snapshot, now - startTime, result);
+                    }
+
+                    if (intervalReporter != null) {
+                        intervalReporter.accept(phase, snapshot, now, startTime);
+                        if (done) {
+                            intervalReporter.flush(now, startTime);
+                        }
+                    }
+
+                    long completed = commits.sum() + fails.sum() + budgetExhausted.sum() + shed.sum() - startCount;
+
+                    if (timeBoxed) {
+                        AsciiArt.printProgressBar(
+                                TimeUnit.NANOSECONDS.toSeconds(cooldownEndNanos),
+                                TimeUnit.NANOSECONDS.toSeconds(now - startTime),
+                                "[%s %,d completed]".formatted(phaseOf(now - startTime, warmupNanos, measureEndNanos),
+                                        completed),
+                                completed / Math.max(1e-9, (now - startTime) / 1e9),
+                                TimeUnit.NANOSECONDS.toMillis(Math.max(0, deadline - now)));
+                    } else {
+                        progress.setCurrent(completed);
+                        progress.setLabel("[%s %,d in progress]".formatted(
+                                phaseOf(now - startTime, warmupNanos, measureEndNanos),
+                                Math.max(0, Math.min(issued.get(), settings.getIterations()) - completed)));
+
+                        AsciiArt.printProgressBar(
+                                progress.getTotal(),
+                                progress.getCurrent(),
+                                progress.getLabel(),
+                                progress.getCallsPerSec(),
+                                progress.getRemainingMillis());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                e.printStackTrace(System.err);
+            }
+
+            // Surface any worker that died from something other than a failed execution
+            for (Future<?> worker : workers) {
+                if (worker.isDone() && !worker.isCancelled()) {
+                    try {
+                        worker.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException e) {
+                        logger.error("", e.getCause());
+                    }
+                }
+            }
+            if (pinningMonitor != null) {
+                result.setPinnedSites(pinningMonitor.getSites());
+            }
+        } finally {
+            executorService.shutdownNow();
+            if (pinningMonitor != null) {
+                pinningMonitor.close();
+            }
+            if (verifier != null) {
+                verifier.close();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The report file is kept open across runs, so that consecutive runs (like the
+     * steps of a sweep) end up in the same time series.
+     */
+    private IntervalReporter intervalReporter() {
+        if (intervalReporter == null) {
+            final Path path = Paths.get(settings.getReportFile());
+            try {
+                Exporter exporter = path.getFileName().toString().endsWith(".jsonl")
+                        ? new JsonLinesExporter(path)
+                        : new StreamingCsvExporter(path);
+                intervalReporter = new IntervalReporter(exporter, settings.getReportInterval(), settings.isOpenLoop());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open report file: " + path, e);
+            }
+        }
+        Map<String, Object> labels = new LinkedHashMap<>();
+        labels.put("threads", settings.getWorkers());
+        labels.put("isolation", settings.getIsolationLevel().alias());
+        labels.put("locking", settings.getLockType().alias());
+        labels.put("retryMode", settings.getRetryMode().alias());
+        labels.put("lockOrder", settings.getLockOrder().alias());
+        labels.put("execution", settings.getExecutionMode().alias());
+        return intervalReporter.setLabels(labels);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (intervalReporter != null) {
+            try {
+                intervalReporter.close();
+            } catch (IOException e) {
+                logger.error("", e);
+            }
+            intervalReporter = null;
+        }
+    }
+
+    private void executeUntilDone(AtomicLong issued, long startTime, long deadline) {
+        while (!Thread.currentThread().isInterrupted()) {
+            long intendedStart;
+
+            if (settings.isOpenLoop()) {
+                intendedStart = awaitNextArrival(issued, startTime, deadline);
+                if (intendedStart == NO_ARRIVAL) {
+                    break;
+                }
+            } else if (settings.isTimeBoxed()
+                    ? System.nanoTime() - deadline >= 0
+                    : issued.incrementAndGet() > settings.getIterations()) {
+                break;
+            } else {
+                intendedStart = System.nanoTime();
+            }
+
+            executeOnce(intendedStart);
+        }
+    }
+
+    private void dispatchArrivals(AtomicLong issued, long startTime, long deadline) {
+        // One virtual thread per arrival, closing the executor awaits the ones in flight
+        try (ExecutorService arrivals = Executors.newVirtualThreadPerTaskExecutor()) {
+            long intendedStart;
+            while ((intendedStart = awaitNextArrival(issued, startTime, deadline)) != NO_ARRIVAL) {
+                final long arrival = intendedStart;
+                arrivals.submit(() -> executeOnce(arrival));
+            }
+        }
+    }
+
+    /**
+     * Claim the next arrival slot and wait until its intended start time.
+     *
+     * @return the intended start time or NO_ARRIVAL if the run is exhausted
+     */
+    private long awaitNextArrival(AtomicLong issued, long startTime, long deadline) {
+        final long slot = issued.getAndIncrement();
+        final long intendedStart = startTime + (long) (slot * 1e9 / settings.getRate());
+
+        if (settings.isTimeBoxed() ? intendedStart - deadline >= 0 : slot >= settings.getIterations()) {
+            return NO_ARRIVAL;
+        }
+
+        long remaining;
+        while ((remaining = intendedStart - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return NO_ARRIVAL;
+            }
+        }
+
+        return intendedStart;
+    }
+
+    private void updateLimit(Snapshot snapshot, long elapsedNanos, RunResult result) {
+        final long commits = snapshot.counter(Metrics.COMMITS);
+        final long transactions = commits + snapshot.counter(Metrics.FAILS);
+        if (transactions == 0) {
+            return;
+        }
+
+        final Histogram serviceTime = snapshot.histogram(Metrics.SERVICE_TIME);
+        final long previousTick = lastLimitUpdate;
+        lastLimitUpdate = elapsedNanos;
+
+        limiter.update((double) snapshot.counter(Metrics.RETRIES) / transactions,
+                serviceTime.getValueAtPercentile(50),
+                serviceTime.getValueAtPercentile(99));
+
+        result.addLimitSample(new LimitSample(Duration.ofNanos(elapsedNanos), limiter.getLimit(),
+                commits / Math.max(1e-9, (elapsedNanos - previousTick) / 1e9)));
+    }
+
+    private void executeOnce(long intendedStart) {
+        if (limiter != null) {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        final long serviceStart = System.nanoTime();
+
+        try {
+            workload.oneExecution();
+            commits.increment();
+        } catch (RetryBudgetExhaustedException e) {
+            // Counted by the transaction wrapper, separately from failures
+        } catch (Exception e) { // Mainly if retries are exhausted
+            logger.error("", e);
+            fails.increment();
+        } finally {
+            if (limiter != null) {
+                limiter.release();
+            }
+        }
+
+        final long end = System.nanoTime();
+
+        serviceTimer.recordNanos(end - serviceStart);
+        if (settings.isOpenLoop()) {
+            responseTimer.recordNanos(end - intendedStart);
+        }
+    }
+
+    private static Phase phaseOf(long elapsedNanos, long warmupNanos, long measureEndNanos) {
+        if (elapsedNanos < warmupNanos) {
+            return Phase.WARMUP;
+        }
+        return elapsedNanos < measureEndNanos ? Phase.MEASURE : Phase.COOLDOWN;
+    }
+}
@@ -0,0 +1,108 @@
+package io.roach.chaos.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.roach.chaos.RunResult;
+import io.roach.chaos.Settings;
+import io.roach.chaos.WorkloadDriver;
+import io.roach.chaos.util.ColoredLogger;
+import io.roach.chaos.workload.Workload;
+
+/**
+ * Runs a slice of a coordinated run. The agent connects to the coordinator, waits
+ * for its slice and the start signal, and ships back the result of its run. The
+ * dataset is created by the coordinator and the consistency check is run there.
+ */
+@Component
+public class Agent {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofMinutes(5);
+
+    private final ColoredLogger logger = ColoredLogger.newInstance();
+
+    @Autowired
+    private Settings settings;
+
+    @Autowired
+    private Workload workload;
+
+    @Autowired
+    private WorkloadDriver driver;
+
+    public void run() {
+        try (Socket socket = connect()) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            Message.of(Message.Type.HELLO)
+                    .put("workloadType", settings.getWorkloadType().name())
+                    .write(out);
+
+            Message start = Message.read(in).expect(Message.Type.START);
+
+            settings.setIterations(Integer.parseInt(start.get("iterations")));
+            settings.setRate(Integer.parseInt(start.get("rate")));
+
+            logger.info("Agent %s: %s".formatted(start.get("agent"), settings.isOpenLoop()
+                    ? "%,d tx/s".formatted(settings.getRate())
+                    : settings.isTimeBoxed()
+                    ? settings.getDuration().toString()
+                    : "%,d iterations".formatted(settings.getIterations())));
+
+            // The coordinator has created the dataset at this point
+            workload.beforeAllExecutions();
+
+            Message.of(Message.Type.READY).write(out);
+
+            Message.read(in).expect(Message.Type.GO);
+
+            RunResult result = driver.run();
+            result.setAnomalies(workload.observedAnomalies());
+
+            Message message = Message.of(Message.Type.RESULT);
+            RunResultCodec.encode(result, message);
+            message.write(out);
+
+            logger.info("Results sent to coordinator");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Socket connect() throws IOException {
+        final String[] parts = settings.getCoordinatorAddress().split(":");
+        final InetSocketAddress address = new InetSocketAddress(parts[0], Integer.parseInt(parts[1]));
+        final Instant deadline = Instant.now().plus(CONNECT_TIMEOUT);
+
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(address);
+                logger.info("Connected to coordinator %s".formatted(address));
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (Instant.now().isAfter(deadline)) {
+                    throw e;
+                }
+                logger.warn("Coordinator %s not available, retrying".formatted(address));
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+}
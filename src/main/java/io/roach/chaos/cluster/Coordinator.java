@@ -0,0 +1,126 @@
+package io.roach.chaos.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.roach.chaos.RunResult;
+import io.roach.chaos.Settings;
+import io.roach.chaos.util.ColoredLogger;
+
+/**
+ * Coordinates a run across a fixed number of agent processes. The coordinator
+ * seeds the dataset, hands each agent a slice of the iterations or arrival rate,
+ * starts all agents at once when they are ready and merges the results they send
+ * back. It does not run any load itself.
+ */
+@Component
+public class Coordinator {
+    private final ColoredLogger logger = ColoredLogger.newInstance();
+
+    @Autowired
+    private Settings settings;
+
+    private record Connection(Socket socket, DataInputStream in, DataOutputStream out, String name) {
+        void send(Message message) throws IOException {
+            message.write(out);
+        }
+
+        Message receive() throws IOException {
+            return Message.read(in);
+        }
+    }
+
+    /**
+     * Run with the given number of agents. The agents are accepted before the dataset
+     * is seeded, so they don't time out waiting for a long seed.
+     *
+     * @param seed creates the dataset once all agents are connected
+     */
+    public RunResult run(Runnable seed) {
+        final int agents = settings.getAgents();
+
+        List<Connection> connections = new ArrayList<>();
+
+        try (ServerSocket serverSocket = new ServerSocket(settings.getCoordinatorPort())) {
+            logger.info("Waiting for %d agents on port %d".formatted(agents, serverSocket.getLocalPort()));
+
+            while (connections.size() < agents) {
+                Socket socket = serverSocket.accept();
+                Connection connection = new Connection(socket,
+                        new DataInputStream(socket.getInputStream()),
+                        new DataOutputStream(socket.getOutputStream()),
+                        socket.getRemoteSocketAddress().toString());
+
+                Message hello = connection.receive().expect(Message.Type.HELLO);
+                if (!settings.getWorkloadType().name().equals(hello.get("workloadType"))) {
+                    connection.send(Message.of(Message.Type.ERROR)
+                            .put("message", "Expected workload " + settings.getWorkloadType()));
+                    socket.close();
+                    logger.warn("Rejected agent %s running %s".formatted(connection.name(), hello.get("workloadType")));
+                    continue;
+                }
+
+                connections.add(connection);
+                logger.info("Agent %d of %d connected: %s".formatted(connections.size(), agents, connection.name()));
+            }
+
+            seed.run();
+
+            for (int i = 0; i < connections.size(); i++) {
+                connections.get(i).send(Message.of(Message.Type.START)
+                        .put("agent", i)
+                        .put("iterations", slice(settings.getIterations(), i, agents))
+                        .put("rate", settings.isOpenLoop() ? slice(settings.getRate(), i, agents) : 0));
+            }
+
+            for (Connection connection : connections) {
+                connection.receive().expect(Message.Type.READY);
+            }
+
+            logger.info("All %d agents ready, starting".formatted(agents));
+
+            for (Connection connection : connections) {
+                connection.send(Message.of(Message.Type.GO));
+            }
+
+            RunResult merged = new RunResult();
+
+            for (Connection connection : connections) {
+                try {
+                    merged.merge(RunResultCodec.decode(connection.receive().expect(Message.Type.RESULT)));
+                    logger.info("Received results from agent %s".formatted(connection.name()));
+                } catch (IOException e) {
+                    logger.error("No results from agent %s: %s".formatted(connection.name(), e.getMessage()));
+                }
+            }
+
+            return merged;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            connections.forEach(connection -> {
+                try {
+                    connection.socket().close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the share of total for the given agent, with the remainder going to the first agents
+     */
+    private static int slice(int total, int index, int count) {
+        return total / count + (index < total % count ? 1 : 0);
+    }
+}
@@ -0,0 +1,103 @@
+package io.roach.chaos.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * Message exchanged between the coordinator and its agents, framed as a length
+ * prefixed block of properties.
+ */
+public class Message {
+    public enum Type {
+        HELLO,
+        START,
+        READY,
+        GO,
+        RESULT,
+        ERROR
+    }
+
+    private static final String TYPE = "type";
+
+    private static final int MAX_LENGTH = 64 * 1024 * 1024;
+
+    public static Message of(Type type) {
+        return new Message(type, new Properties());
+    }
+
+    public static Message read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Bad message length: " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        Properties properties = new Properties();
+        properties.load(new StringReader(new String(bytes, StandardCharsets.UTF_8)));
+
+        String type = properties.getProperty(TYPE);
+        if (type == null) {
+            throw new IOException("Missing message type");
+        }
+        properties.remove(TYPE);
+
+        return new Message(Type.valueOf(type), properties);
+    }
+
+    private final Type type;
+
+    private final Properties properties;
+
+    private Message(Type type, Properties properties) {
+        this.type = type;
+        this.properties = properties;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Properties getProperties() {
+        return properties;
+    }
+
+    public Message put(String key, Object value) {
+        properties.setProperty(key, String.valueOf(value));
+        return this;
+    }
+
+    public String get(String key) {
+        return properties.getProperty(key);
+    }
+
+    public Message expect(Type expected) throws IOException {
+        if (type == Type.ERROR) {
+            throw new IOException("Remote error: " + get("message"));
+        }
+        if (type != expected) {
+            throw new IOException("Expected " + expected + " message but got " + type);
+        }
+        return this;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        copy.setProperty(TYPE, type.name());
+
+        StringWriter writer = new StringWriter();
+        copy.store(writer, null);
+
+        byte[] bytes = writer.toString().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+}
@@ -0,0 +1,111 @@
+package io.roach.chaos.cluster;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+import io.roach.chaos.RunResult;
+import io.roach.chaos.RunResult.LimitSample;
+import io.roach.chaos.RunResult.Phase;
+import io.roach.chaos.metrics.Snapshot;
+
+/**
+ * Encodes run results into message properties, with histograms in the compressed
+ * HdrHistogram format so that they can be merged losslessly by the coordinator.
+ */
+public abstract class RunResultCodec {
+    private static final String PHASE_PREFIX = "phase.";
+
+    private static final String PINNED_PREFIX = "pinned.";
+
+    private static final String LIMIT_PREFIX = "limit.";
+
+    private RunResultCodec() {
+    }
+
+    public static void encode(RunResult result, Message message) {
+        for (Phase phase : Phase.values()) {
+            String prefix = PHASE_PREFIX + phase + ".";
+            Snapshot snapshot = result.getSnapshot(phase);
+
+            message.put(prefix + "duration", result.getDuration(phase));
+            snapshot.getCounters().forEach((name, value) ->
+                    message.put(prefix + "counter." + name, value));
+            snapshot.getHistograms().forEach((name, histogram) ->
+                    message.put(prefix + "histogram." + name, encode(histogram)));
+        }
+
+        result.getPinnedSites().forEach((site, count) -> message.put(PINNED_PREFIX + site, count));
+
+        List<LimitSample> limitSamples = result.getLimitSamples();
+        for (int i = 0; i < limitSamples.size(); i++) {
+            LimitSample sample = limitSamples.get(i);
+            message.put(LIMIT_PREFIX + i, "%s,%d,%s".formatted(sample.elapsed(), sample.limit(), sample.goodput()));
+        }
+        message.put("anomalies", result.getAnomalies());
+    }
+
+    public static RunResult decode(Message message) {
+        RunResult result = new RunResult();
+
+        for (Phase phase : Phase.values()) {
+            String prefix = PHASE_PREFIX + phase + ".";
+            Snapshot snapshot = new Snapshot();
+
+            message.getProperties().stringPropertyNames().forEach(key -> {
+                if (key.startsWith(prefix + "counter.")) {
+                    snapshot.putCounter(key.substring((prefix + "counter.").length()),
+                            Long.parseLong(message.get(key)));
+                } else if (key.startsWith(prefix + "histogram.")) {
+                    snapshot.putHistogram(key.substring((prefix + "histogram.").length()),
+                            decode(message.get(key)));
+                }
+            });
+
+            String duration = message.get(prefix + "duration");
+            result.add(phase, snapshot, duration != null ? Duration.parse(duration) : Duration.ZERO);
+        }
+
+        Map<String, Long> pinnedSites = new LinkedHashMap<>();
+        message.getProperties().stringPropertyNames().stream()
+                .filter(key -> key.startsWith(PINNED_PREFIX))
+                .forEach(key -> pinnedSites.put(key.substring(PINNED_PREFIX.length()),
+                        Long.parseLong(message.get(key))));
+        result.setPinnedSites(pinnedSites);
+
+        for (int i = 0; message.get(LIMIT_PREFIX + i) != null; i++) {
+            String[] fields = message.get(LIMIT_PREFIX + i).split(",");
+            result.addLimitSample(new LimitSample(Duration.parse(fields[0]),
+                    Integer.parseInt(fields[1]), Double.parseDouble(fields[2])));
+        }
+
+        String anomalies = message.get("anomalies");
+        result.setAnomalies(anomalies != null ? Integer.parseInt(anomalies) : 0);
+
+        return result;
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private static Histogram decode(String text) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(
+                    ByteBuffer.wrap(Base64.getDecoder().decode(text)), 0);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Bad histogram encoding", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.roach.chaos.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic event counter that can be read both as a running total and
+ * as the delta since the previous drain. A counter with a parent also adds
+ * to the parent.
+ */
+public class Counter {
+    private final String name;
+
+    private final LongAdder adder = new LongAdder();
+
+    private long drained;
+
+    private final Counter parent;
+
+    public Counter(String name) {
+        this(name, null);
+    }
+
+    public Counter(String name, Counter parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        adder.increment();
+        if (parent != null) {
+            parent.increment();
+        }
+    }
+
+    public void add(long delta) {
+        adder.add(delta);
+        if (parent != null) {
+            parent.add(delta);
+        }
+    }
+
+    public long sum() {
+        return adder.sum();
+    }
+
+    public synchronized long drainInterval() {
+        long total = adder.sum();
+        long delta = total - drained;
+        drained = total;
+        return delta;
+    }
+}
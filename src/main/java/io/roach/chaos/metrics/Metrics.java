@@ -0,0 +1,148 @@
+package io.roach.chaos.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of named timers and counters recorded by the workload drivers and
+ * transaction wrappers. Callers should resolve and keep references to the timers
+ * and counters they record into, rather than looking them up per sample.
+ * <p>
+ * A scoped view registers its timers and counters in this registry under the
+ * scope prefix ({@code scope.name}) and rolls every sample up into the unscoped
+ * timer or counter of the same name. A detached scope does not roll up, for load
+ * that must be kept out of the workload totals.
+ */
+public class Metrics {
+    public static final String TRANSACTION_TIME = "transactionTime";
+
+    public static final String SERVICE_TIME = "serviceTime";
+
+    public static final String RESPONSE_TIME = "responseTime";
+
+    public static final String PINNED_TIME = "pinnedTime";
+
+    public static final String BACKOFF_TIME = "backoffTime";
+
+    public static final String TOTAL_BACKOFF_TIME = "totalBackoffTime";
+
+    public static final String POOL_WAIT_TIME = "poolWaitTime";
+
+    public static final String BEGIN_TIME = "beginTime";
+
+    public static final String STATEMENT_TIME = "statementTime";
+
+    public static final String COMMIT_TIME = "commitTime";
+
+    public static final String RETRY_TIME = "retryTime";
+
+    public static final String READ_STATEMENT_TIME = "readStatementTime";
+
+    public static final String READ_TRANSACTION_TIME = "readTransactionTime";
+
+    public static final String COMMITS = "commits";
+
+    public static final String FAILS = "fails";
+
+    public static final String RETRIES = "retries";
+
+    public static final String BUDGET_EXHAUSTED = "budgetExhausted";
+
+    public static final String SHED = "shed";
+
+    public static final String RETRIED = "retried";
+
+    public static final String RECOVERED = "recovered";
+
+    public static final String DEADLOCKS = "deadlocks";
+
+    public static final String VERSION_CACHE_HITS = "versionCacheHits";
+
+    public static final String VERSION_CACHE_MISSES = "versionCacheMisses";
+
+    public static final String STALE_VERSIONS = "staleVersions";
+
+    public static final String INVARIANT_CHECKS = "invariantChecks";
+
+    public static final String INVARIANT_VIOLATIONS = "invariantViolations";
+
+    public static final String INVARIANT_CHECK_TIME = "invariantCheckTime";
+
+    public static final String VERIFIER_SCOPE = "verifier";
+
+    public static String scopedName(String scope, String name) {
+        return scope + "." + name;
+    }
+
+    private final ConcurrentMap<String, Timer> timers;
+
+    private final ConcurrentMap<String, Counter> counters;
+
+    private final Metrics root;
+
+    private final String scope;
+
+    private final boolean rollUp;
+
+    public Metrics() {
+        this.timers = new ConcurrentHashMap<>();
+        this.counters = new ConcurrentHashMap<>();
+        this.root = null;
+        this.scope = null;
+        this.rollUp = false;
+    }
+
+    private Metrics(Metrics root, String scope, boolean rollUp) {
+        this.timers = root.timers;
+        this.counters = root.counters;
+        this.root = root;
+        this.scope = scope;
+        this.rollUp = rollUp;
+    }
+
+    /**
+     * @return a view recording into this registry under the given scope
+     */
+    public Metrics scope(String scope) {
+        return new Metrics(root != null ? root : this, scope, true);
+    }
+
+    /**
+     * @return a view recording into this registry under the given scope only
+     */
+    public Metrics detachedScope(String scope) {
+        return new Metrics(root != null ? root : this, scope, false);
+    }
+
+    public Timer timer(String name) {
+        if (root != null) {
+            Timer parent = rollUp ? root.timer(name) : null;
+            return timers.computeIfAbsent(scopedName(scope, name), n -> new Timer(n, parent));
+        }
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    public Counter counter(String name) {
+        if (root != null) {
+            Counter parent = rollUp ? root.counter(name) : null;
+            return counters.computeIfAbsent(scopedName(scope, name), n -> new Counter(n, parent));
+        }
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Capture everything recorded since the previous drain.
+     *
+     * @return snapshot of the interval
+     */
+    public Snapshot drain() {
+        return root != null ? root.drain() : drainRoot();
+    }
+
+    private synchronized Snapshot drainRoot() {
+        Snapshot snapshot = new Snapshot();
+        timers.forEach((name, timer) -> snapshot.putHistogram(name, timer.drainInterval()));
+        counters.forEach((name, counter) -> snapshot.putCounter(name, counter.drainInterval()));
+        return snapshot;
+    }
+}
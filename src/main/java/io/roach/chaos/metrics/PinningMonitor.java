@@ -0,0 +1,104 @@
+package io.roach.chaos.metrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Streams JFR virtual thread pinning events while a run is in progress. Pinning
+ * times are recorded as a timer and the call sites are counted by the innermost
+ * JDBC driver or connection pool frame, to see whether the drivers pin their
+ * carrier threads under load.
+ */
+public class PinningMonitor implements AutoCloseable {
+    private static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+
+    private static final List<String> FRAME_PREFIXES = List.of(
+            "org.postgresql.",
+            "io.cockroachdb.",
+            "com.mysql.",
+            "oracle.jdbc.",
+            "com.zaxxer.hikari.");
+
+    private static final List<String> JDK_PREFIXES = List.of(
+            "java.",
+            "jdk.",
+            "sun.");
+
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+
+    private final Timer pinnedTimer;
+
+    private RecordingStream recordingStream;
+
+    public PinningMonitor(Metrics metrics) {
+        this.pinnedTimer = metrics.timer(Metrics.PINNED_TIME);
+    }
+
+    public PinningMonitor start(Duration threshold) {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(EVENT_NAME)
+                .withThreshold(threshold)
+                .withStackTrace();
+        recordingStream.onEvent(EVENT_NAME, this::onEvent);
+        recordingStream.startAsync();
+        return this;
+    }
+
+    private void onEvent(RecordedEvent event) {
+        pinnedTimer.recordNanos(event.getDuration().toNanos());
+        sites.computeIfAbsent(siteOf(event), x -> new LongAdder()).increment();
+    }
+
+    private static String siteOf(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "<unknown>";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (FRAME_PREFIXES.stream().anyMatch(type::startsWith)) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        // Otherwise the innermost frame outside of the JDK
+        return frames.stream()
+                .filter(frame -> JDK_PREFIXES.stream().noneMatch(frame.getMethod().getType().getName()::startsWith))
+                .findFirst()
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                .orElse("<unknown>");
+    }
+
+    /**
+     * @return pinning event counts by call site, most frequent first
+     */
+    public Map<String, Long> getSites() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        sites.entrySet()
+                .stream()
+                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue(
+                        (a, b) -> Long.compare(a.sum(), b.sum()))))
+                .forEach(e -> result.put(e.getKey(), e.getValue().sum()));
+        return result;
+    }
+
+    /**
+     * Flush pending events and stop streaming.
+     */
+    @Override
+    public void close() {
+        if (recordingStream != null) {
+            recordingStream.stop();
+            recordingStream.close();
+            recordingStream = null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.roach.chaos.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Records the time spent waiting for a connection from the Hikari pool, to tell
+ * pool starvation apart from time spent in the database.
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+    private static final ThreadLocal<Timer> threadPoolWaitTimer = new ThreadLocal<>();
+
+    /**
+     * Record the pool wait of the calling thread into the given timer rather than
+     * the workload totals, for background checks sharing the pool.
+     */
+    public static void recordCallingThreadInto(Timer timer) {
+        threadPoolWaitTimer.set(timer);
+    }
+
+    private final Timer poolWaitTimer;
+
+    public PoolMetricsTrackerFactory(Metrics metrics) {
+        this.poolWaitTimer = metrics.timer(Metrics.POOL_WAIT_TIME);
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                Timer timer = threadPoolWaitTimer.get();
+                (timer != null ? timer : poolWaitTimer).recordNanos(elapsedAcquiredNanos);
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package io.roach.chaos.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Histograms and counter values captured over some time interval. Snapshots are
+ * mergeable, so intervals can be added up into run totals.
+ */
+public class Snapshot {
+    private final Map<String, Histogram> histograms = new TreeMap<>();
+
+    private final Map<String, Long> counters = new TreeMap<>();
+
+    public Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    public Map<String, Long> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public Snapshot putHistogram(String name, Histogram histogram) {
+        histograms.put(name, histogram);
+        return this;
+    }
+
+    public Snapshot putCounter(String name, long value) {
+        counters.put(name, value);
+        return this;
+    }
+
+    /**
+     * @return the named histogram, or an empty histogram if nothing was recorded
+     */
+    public Histogram histogram(String name) {
+        return histograms.getOrDefault(name, new Histogram(Timer.SIGNIFICANT_DIGITS));
+    }
+
+    public long counter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    public Snapshot add(Snapshot other) {
+        other.histograms.forEach((name, histogram) ->
+                histograms.computeIfAbsent(name, x -> new Histogram(Timer.SIGNIFICANT_DIGITS))
+                        .add(histogram));
+        other.counters.forEach((name, value) -> counters.merge(name, value, Long::sum));
+        return this;
+    }
+}
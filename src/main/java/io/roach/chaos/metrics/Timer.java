@@ -0,0 +1,87 @@
+package io.roach.chaos.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
+
+/**
+ * Latency timer backed by one HdrHistogram recorder per recording thread. Recording
+ * is wait-free and allocation free once a thread has recorded its first value, and
+ * the per-thread recorders are merged only when an interval is drained.
+ * <p>
+ * Virtual threads are cheap and potentially short-lived, so rather than piling up
+ * one recorder each they share a single multi-writer recorder. The recorder of a
+ * platform thread that has terminated is folded into the next drain and dropped,
+ * so the pools started for each sweep step or matrix cell do not pile up either.
+ * <p>
+ * Values are recorded in microseconds. A timer with a parent also records each
+ * value into the parent, which is how scoped timers roll up into the totals.
+ */
+public class Timer {
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+
+    private record ThreadRecorder(Thread owner, SingleWriterRecorder recorder) {
+    }
+
+    private final List<ThreadRecorder> recorders = new CopyOnWriteArrayList<>();
+
+    private final ThreadLocal<SingleWriterRecorder> localRecorder = ThreadLocal.withInitial(() -> {
+        SingleWriterRecorder recorder = new SingleWriterRecorder(SIGNIFICANT_DIGITS);
+        recorders.add(new ThreadRecorder(Thread.currentThread(), recorder));
+        return recorder;
+    });
+
+    private final Recorder sharedRecorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final Timer parent;
+
+    public Timer(String name) {
+        this(name, null);
+    }
+
+    public Timer(String name, Timer parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void recordNanos(long nanos) {
+        final long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (Thread.currentThread().isVirtual()) {
+            sharedRecorder.recordValue(micros);
+        } else {
+            localRecorder.get().recordValue(micros);
+        }
+        if (parent != null) {
+            parent.recordNanos(nanos);
+        }
+    }
+
+    /**
+     * Merge and reset the samples recorded by all threads since the previous call.
+     *
+     * @return histogram of the samples recorded in the interval
+     */
+    public synchronized Histogram drainInterval() {
+        // Terminated threads can't record anymore, so their last samples are drained below
+        final List<ThreadRecorder> terminated = recorders.stream()
+                .filter(threadRecorder -> !threadRecorder.owner().isAlive())
+                .toList();
+
+        Histogram interval = new Histogram(SIGNIFICANT_DIGITS);
+        recorders.forEach(threadRecorder -> interval.add(threadRecorder.recorder().getIntervalHistogram()));
+        interval.add(sharedRecorder.getIntervalHistogram());
+
+        recorders.removeAll(terminated);
+        return interval;
+    }
+}
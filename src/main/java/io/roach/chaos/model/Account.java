@@ -78,7 +78,7 @@ public class Account {
                 '}';
     }
 
-    public static class Id {
+    public static class Id implements Comparable<Id> {
         private final Long id;
 
         private final String type;
@@ -115,7 +115,7 @@ public class Account {
             if (!id.equals(id1.id)) {
                 return false;
             }
-            return type == id1.type;
+            return type.equals(id1.type);
         }
 
         @Override
@@ -125,6 +125,12 @@ public class Account {
             return result;
         }
 
+        @Override
+        public int compareTo(Id o) {
+            int c = id.compareTo(o.id);
+            return c != 0 ? c : type.compareTo(o.type);
+        }
+
         @Override
         public String toString() {
             return "Id{" +
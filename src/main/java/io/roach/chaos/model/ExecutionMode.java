@@ -0,0 +1,21 @@
+package io.roach.chaos.model;
+
+/**
+ * Where the read-check-write logic of the transfer workloads runs.
+ */
+public enum ExecutionMode {
+    CLIENT {
+        @Override
+        public String alias() {
+            return "CS";
+        }
+    },
+    PROCEDURE {
+        @Override
+        public String alias() {
+            return "SP";
+        }
+    };
+
+    public abstract String alias();
+}
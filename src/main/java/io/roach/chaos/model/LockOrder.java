@@ -0,0 +1,27 @@
+package io.roach.chaos.model;
+
+/**
+ * Order in which multi-row transactions read and lock their rows.
+ */
+public enum LockOrder {
+    NONE {
+        @Override
+        public String alias() {
+            return "NA";
+        }
+    },
+    SORTED {
+        @Override
+        public String alias() {
+            return "SORT";
+        }
+    },
+    SINGLE_STATEMENT {
+        @Override
+        public String alias() {
+            return "ONE";
+        }
+    };
+
+    public abstract String alias();
+}
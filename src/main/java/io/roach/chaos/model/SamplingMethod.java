@@ -0,0 +1,45 @@
+package io.roach.chaos.model;
+
+/**
+ * How the random selection of target accounts is drawn from the account table.
+ */
+public enum SamplingMethod {
+    /**
+     * Sort the whole table by a random value.
+     */
+    SORT {
+        @Override
+        public String alias() {
+            return "SORT";
+        }
+    },
+    /**
+     * Seek to random ids between the lowest and highest id.
+     */
+    RANGE_PROBE {
+        @Override
+        public String alias() {
+            return "RANGE";
+        }
+    },
+    /**
+     * Block sampling with TABLESAMPLE or SAMPLE, falls back to range probes where not supported.
+     */
+    TABLESAMPLE {
+        @Override
+        public String alias() {
+            return "TS";
+        }
+    },
+    /**
+     * Reservoir sampling over one streamed scan, without sorting.
+     */
+    RESERVOIR {
+        @Override
+        public String alias() {
+            return "RES";
+        }
+    };
+
+    public abstract String alias();
+}
@@ -1,24 +1,50 @@
 package io.roach.chaos.repository;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.util.Pair;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
 import io.roach.chaos.Settings;
 import io.roach.chaos.model.Account;
 import io.roach.chaos.model.AccountType;
 import io.roach.chaos.model.LockType;
+import io.roach.chaos.util.ColoredLogger;
 
 public abstract class AbstractAccountRepository implements AccountRepository {
     public static final int BATCH_SIZE = 512;
 
+    private static final int PROBE_SIZE = 2;
+
+    private static final int MAX_PROBES_PER_ACCOUNT = 10;
+
+    protected final ColoredLogger logger = ColoredLogger.newInstance();
+
     @Autowired
     protected JdbcTemplate jdbcTemplate;
 
@@ -37,6 +63,106 @@ public abstract class AbstractAccountRepository implements AccountRepository {
                 .queryForObject("SHOW transaction_isolation", String.class);
     }
 
+    @Override
+    public void createAccounts(BigDecimal initialBalance,
+                               int count,
+                               Consumer<Integer> progress) {
+        jdbcTemplate.execute("TRUNCATE table account");
+
+        final int tuples = count / 2;
+        final int threads = Math.max(1, Math.min(settings.getSeedThreads(), tuples / BATCH_SIZE));
+        final int rangeSize = (tuples + threads - 1) / threads;
+
+        // Progress is reported from all loaders
+        final Consumer<Integer> sharedProgress = rows -> {
+            synchronized (progress) {
+                progress.accept(rows);
+            }
+        };
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int first = 1; first <= tuples; first += rangeSize) {
+            final long firstTuple = first;
+            final long lastTuple = Math.min(tuples, first + rangeSize - 1L);
+            tasks.add(() -> {
+                createAccountRange(initialBalance, firstTuple, lastTuple, sharedProgress);
+                return null;
+            });
+        }
+
+        executeInParallel(threads, tasks);
+    }
+
+    /**
+     * Run the tasks on a pool of the given size.
+     *
+     * @return the task results in task order
+     */
+    protected <T> List<T> executeInParallel(int threads, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel tasks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException ex) {
+                throw ex;
+            }
+            throw new IllegalStateException("Parallel task failed", e.getCause());
+        }
+
+        return results;
+    }
+
+    /**
+     * Create the checking and credit accounts of a range of account tuples (inclusive)
+     * on one connection, with the fastest bulk path of the dialect.
+     */
+    protected abstract void createAccountRange(BigDecimal initialBalance,
+                                               long firstTuple,
+                                               long lastTuple,
+                                               Consumer<Integer> progress);
+
+    @Override
+    public void resetAccounts(BigDecimal initialBalance,
+                              int count,
+                              Consumer<Integer> progress) {
+        jdbcTemplate.update("DELETE FROM account WHERE type NOT IN (?,?)",
+                AccountType.checking.name(), AccountType.credit.name());
+
+        final Consumer<Integer> sharedProgress = rows -> {
+            synchronized (progress) {
+                progress.accept(rows);
+            }
+        };
+
+        // Bounded batches rather than one transaction rewriting the whole table
+        final int batches = Math.max(1, count / 2 / BATCH_SIZE);
+
+        final int rowsUpdated = executeInParallel(settings.getSeedThreads(), idRanges(batches).stream()
+                .map(range -> (Callable<Integer>) () -> {
+                    int rows = jdbcTemplate.update(
+                            "UPDATE account SET balance = ?, version = 0"
+                                    + " WHERE id BETWEEN ? AND ? AND type IN (?,?)",
+                            initialBalance, range.getFirst(), range.getSecond(),
+                            AccountType.checking.name(), AccountType.credit.name());
+                    sharedProgress.accept(rows);
+                    return rows;
+                })
+                .toList())
+                .stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+
+        if (rowsUpdated < count / 2 * 2) {
+            createAccounts(initialBalance, count, progress);
+        }
+    }
 
     @Override
     public void createAccount(Account account) {
@@ -80,16 +206,165 @@ public abstract class AbstractAccountRepository implements AccountRepository {
     }
 
     @Override
-    public List<Account> findTargetAccounts(int limit, boolean random) {
+    public List<Account> findAccountsByIds(Collection<Account.Id> ids, LockType lock) {
+        return jdbcTemplate.query(
+                "SELECT * FROM account WHERE (id,type) IN ("
+                        + String.join(",", Collections.nCopies(ids.size(), "(?,?)"))
+                        + ") ORDER BY id, type"
+                        + (lock == LockType.FOR_UPDATE ? " FOR UPDATE" :
+                        lock == LockType.FOR_SHARE ? " FOR SHARE" : ""),
+                ps -> {
+                    int i = 1;
+                    for (Account.Id id : ids) {
+                        ps.setLong(i++, id.getId());
+                        ps.setString(i++, id.getType());
+                    }
+                }, (rs, rowNum) -> toAccount(rs));
+    }
+
+    @Override
+    public List<Account> findAccountsByIdIn(Collection<Long> ids, LockType lock) {
         return jdbcTemplate.query(
-                random ? "SELECT * FROM account ORDER BY random() LIMIT ?"
-                        : "SELECT * FROM account ORDER BY id LIMIT ?",
+                "SELECT * FROM account WHERE id = ANY(?)"
+                        + (lock == LockType.FOR_UPDATE ? " FOR UPDATE" :
+                        lock == LockType.FOR_SHARE ? " FOR SHARE" : ""),
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("int8", ids.toArray()));
+                }, (rs, rowNum) -> toAccount(rs));
+    }
+
+    protected String firstAccountsSQL() {
+        return "SELECT * FROM account ORDER BY id LIMIT ?";
+    }
+
+    protected String randomSortSQL() {
+        return "SELECT * FROM account ORDER BY random() LIMIT ?";
+    }
+
+    protected String rangeProbeSQL() {
+        return "SELECT * FROM account WHERE id >= ? ORDER BY id, type LIMIT ?";
+    }
+
+    /**
+     * @return a block sampling query or null if the dialect has none
+     */
+    protected String tableSampleSQL(String percent) {
+        return null;
+    }
+
+    protected int streamingFetchSize() {
+        return BATCH_SIZE;
+    }
+
+    @Override
+    public List<Account> findTargetAccounts(int limit, boolean random) {
+        if (!random) {
+            return findAccounts(firstAccountsSQL(), limit);
+        }
+
+        final List<Account> sample = switch (settings.getSamplingMethod()) {
+            case SORT -> findAccounts(randomSortSQL(), limit);
+            case RANGE_PROBE -> sampleByRangeProbe(limit);
+            case TABLESAMPLE -> sampleByTableSample(limit);
+            case RESERVOIR -> sampleByReservoir(limit);
+        };
+        if (sample.size() < limit) {
+            logger.warn("Selection holds only %,d of %,d requested accounts".formatted(sample.size(), limit));
+        }
+        return sample;
+    }
+
+    private List<Account> findAccounts(String sql, int limit) {
+        return jdbcTemplate.query(sql,
                 ps -> {
                     ps.setInt(1, limit);
                     ps.setFetchSize(limit);
                 }, (rs, rowNum) -> toAccount(rs));
     }
 
+    private List<Account> sampleByRangeProbe(int limit) {
+        final Pair<Long, Long> bounds = jdbcTemplate.queryForObject("SELECT min(id), max(id) FROM account",
+                (rs, rowNum) -> rs.getObject(1) != null ? Pair.of(rs.getLong(1), rs.getLong(2)) : null);
+        if (bounds == null) {
+            return List.of();
+        }
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Map<Account.Id, Account> sample = new LinkedHashMap<>();
+
+        // Each probe is an index seek picking up one account tuple, ids past a gap are slightly favoured
+        for (int probes = 0; sample.size() < limit && probes < limit * MAX_PROBES_PER_ACCOUNT; probes++) {
+            final long pivot = random.nextLong(bounds.getFirst(), bounds.getSecond() + 1);
+            jdbcTemplate.query(rangeProbeSQL(), ps -> {
+                ps.setLong(1, pivot);
+                ps.setInt(2, Math.min(PROBE_SIZE, limit - sample.size()));
+            }, (rs, rowNum) -> toAccount(rs)).forEach(account -> sample.putIfAbsent(account.getId(), account));
+        }
+
+        if (sample.size() < limit) {
+            logger.warn("Range probes found %,d of %,d accounts - using a reservoir sample"
+                    .formatted(sample.size(), limit));
+            return sampleByReservoir(limit);
+        }
+
+        return new ArrayList<>(sample.values());
+    }
+
+    private List<Account> sampleByTableSample(int limit) {
+        // Oversample to make up for the variance of block sampling
+        final double percent = Math.min(99, 200.0 * limit / Math.max(1, settings.getNumAccounts()));
+        final String sql = tableSampleSQL(BigDecimal.valueOf(percent).setScale(6, RoundingMode.UP).toPlainString());
+        if (sql == null) {
+            logger.warn("No TABLESAMPLE for dialect %s - using range probes".formatted(settings.getDialect()));
+            return sampleByRangeProbe(limit);
+        }
+
+        List<Account> sample = new ArrayList<>(jdbcTemplate.query(sql, (rs, rowNum) -> toAccount(rs)));
+        if (sample.size() < limit) {
+            return sampleByRangeProbe(limit);
+        }
+
+        // Sampled blocks hold neighbouring rows, so shuffle before cutting to size
+        Collections.shuffle(sample);
+        return new ArrayList<>(sample.subList(0, limit));
+    }
+
+    private List<Account> sampleByReservoir(int limit) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Account>>) connection -> {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final List<Account> reservoir = new ArrayList<>(limit);
+
+            final boolean autoCommit = connection.getAutoCommit();
+            // Some drivers only fetch in chunks within a transaction
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement ps = connection.prepareStatement("SELECT * FROM account",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(streamingFetchSize());
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    long rows = 0;
+                    while (rs.next()) {
+                        rows++;
+                        if (reservoir.size() < limit) {
+                            reservoir.add(toAccount(rs));
+                        } else {
+                            long slot = random.nextLong(rows);
+                            if (slot < limit) {
+                                reservoir.set((int) slot, toAccount(rs));
+                            }
+                        }
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+
+            return reservoir;
+        });
+    }
+
     protected Account toAccount(ResultSet res) throws SQLException {
         return new Account()
                 .setId(new Account.Id(
@@ -130,6 +405,52 @@ public abstract class AbstractAccountRepository implements AccountRepository {
         }
     }
 
+    @Override
+    public void updateBalances(Collection<Account> accounts) {
+        int[][] rowsUpdated = jdbcTemplate.batchUpdate(
+                "UPDATE account SET balance = ? "
+                        + "WHERE id = ? and type=?", accounts, accounts.size(), (ps, account) -> {
+                    ps.setBigDecimal(1, account.getBalance());
+                    ps.setLong(2, account.getId().getId());
+                    ps.setString(3, account.getId().getType());
+                });
+
+        if (countRowsUpdated(rowsUpdated) != accounts.size()) {
+            throw new IllegalStateException("Rows affected != " + accounts.size());
+        }
+    }
+
+    @Override
+    public void updateBalancesCAS(Collection<Account> accounts) {
+        int[][] rowsUpdated = jdbcTemplate.batchUpdate(
+                "UPDATE account SET balance = ?, version = version + 1 "
+                        + "WHERE id = ? AND type=? AND version=?", accounts, accounts.size(), (ps, account) -> {
+                    ps.setBigDecimal(1, account.getBalance());
+                    ps.setLong(2, account.getId().getId());
+                    ps.setString(3, account.getId().getType());
+                    ps.setInt(4, account.getVersion());
+                });
+
+        int rows = countRowsUpdated(rowsUpdated);
+        if (rows != accounts.size()) {
+            throw new OptimisticLockingFailureException(
+                    "Rows affected not " + accounts.size() + " but " + rows + " for " + accounts);
+        }
+    }
+
+    private static int countRowsUpdated(int[][] rowsUpdated) {
+        int sum = 0;
+        for (int[] batch : rowsUpdated) {
+            for (int rows : batch) {
+                if (rows == Statement.SUCCESS_NO_INFO) {
+                    throw new IllegalStateException("Driver did not report batch update counts");
+                }
+                sum += rows;
+            }
+        }
+        return sum;
+    }
+
     @Override
     public void addBalance(Long id,
                            AccountType type,
@@ -169,6 +490,53 @@ public abstract class AbstractAccountRepository implements AccountRepository {
         }
     }
 
+    @Override
+    public Account addBalanceCASReturning(Account.Id id,
+                                          BigDecimal amount,
+                                          Integer version) {
+        List<Account> accounts = jdbcTemplate.query(
+                "UPDATE account SET balance = balance + ?, version = version + 1 "
+                        + "WHERE id = ? AND type=? AND version=? RETURNING balance, version", ps -> {
+                    ps.setBigDecimal(1, amount);
+                    ps.setLong(2, id.getId());
+                    ps.setString(3, id.getType());
+                    ps.setInt(4, version);
+                }, (rs, rowNum) -> new Account()
+                        .setId(id)
+                        .setBalance(rs.getBigDecimal(1))
+                        .setVersion(rs.getInt(2)));
+
+        if (accounts.size() != 1) {
+            throw new OptimisticLockingFailureException("id: " + id
+                    + " amount: " + amount
+                    + " version: " + version);
+        }
+
+        return accounts.get(0);
+    }
+
+    @Override
+    public void callTransferLegs(List<Pair<Account.Id, BigDecimal>> legs,
+                                 LockType lock) {
+        jdbcTemplate.query("SELECT chaos_transfer_legs(?::int[], ?::varchar[], ?::numeric[], ?)", ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("int8",
+                    legs.stream().map(leg -> leg.getFirst().getId()).toArray()));
+            ps.setArray(2, connection.createArrayOf("varchar",
+                    legs.stream().map(leg -> leg.getFirst().getType()).toArray()));
+            ps.setArray(3, connection.createArrayOf("numeric",
+                    legs.stream().map(Pair::getSecond).toArray()));
+            ps.setBoolean(4, lock == LockType.FOR_UPDATE);
+        }, (rs, rowNum) -> rs.getInt(1));
+    }
+
+    @Override
+    public boolean callTransferTuple(Long id,
+                                     BigDecimal amount) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT chaos_transfer_tuple(?, ?)",
+                Boolean.class, id, amount));
+    }
+
     @Override
     public BigDecimal totalAccountBalance(Long id) {
         return this.jdbcTemplate.queryForObject(
@@ -178,23 +546,179 @@ public abstract class AbstractAccountRepository implements AccountRepository {
         );
     }
 
+    /**
+     * @return a clause reading from a consistent snapshot taken the snapshot offset
+     * in the past, or an empty string if the dialect has none
+     */
+    protected String snapshotClause() {
+        return "";
+    }
+
+    /**
+     * @return the isolation level of the read-only transaction used for snapshot reads
+     */
+    protected int snapshotIsolation() {
+        return Connection.TRANSACTION_REPEATABLE_READ;
+    }
+
+    /**
+     * The total and the negative tuples are aggregated by one statement, so they are
+     * read from the same snapshot.
+     */
+    protected String snapshotTotalsSQL(String snapshot) {
+        return "SELECT sum(total), coalesce(sum(CASE WHEN total < 0 THEN 1 ELSE 0 END), 0)"
+                + " FROM (SELECT sum(balance) AS total FROM account GROUP BY id) t" + snapshot;
+    }
+
+    @Override
+    public Pair<BigDecimal, Long> snapshotTotals() {
+        final String snapshot = snapshotClause();
+        if (!snapshot.isEmpty()) {
+            return jdbcTemplate.queryForObject(snapshotTotalsSQL(snapshot),
+                    (rs, rowNum) -> Pair.of(rs.getBigDecimal(1), rs.getLong(2)));
+        }
+
+        return jdbcTemplate.execute((ConnectionCallback<Pair<BigDecimal, Long>>) connection -> {
+            final boolean autoCommit = connection.getAutoCommit();
+            final int isolation = connection.getTransactionIsolation();
+
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(snapshotIsolation());
+            connection.setReadOnly(true);
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(snapshotTotalsSQL(""))) {
+                rs.next();
+                return Pair.of(rs.getBigDecimal(1), rs.getLong(2));
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setTransactionIsolation(isolation);
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * The post-run checks read after the workload stopped, so the snapshot offset is
+     * waited out first to have the last writes in the snapshot. The id ranges read
+     * at slightly different past timestamps but see the same settled data.
+     */
+    private String settledSnapshotClause() {
+        final String snapshot = snapshotClause();
+        if (!snapshot.isEmpty()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(settings.getSnapshotOffset().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Split the id key space into one inclusive id range per verification thread.
+     */
+    protected List<Pair<Long, Long>> idRanges() {
+        return idRanges(settings.getVerifyThreads());
+    }
+
+    /**
+     * Split the id key space into the given number of inclusive id ranges.
+     */
+    protected List<Pair<Long, Long>> idRanges(int count) {
+        final Pair<Long, Long> bounds = jdbcTemplate.queryForObject("SELECT min(id), max(id) FROM account",
+                (rs, rowNum) -> rs.getObject(1) != null ? Pair.of(rs.getLong(1), rs.getLong(2)) : null);
+        if (bounds == null) {
+            return List.of();
+        }
+
+        final long min = bounds.getFirst();
+        final long max = bounds.getSecond();
+        final long step = (max - min) / count + 1;
+
+        List<Pair<Long, Long>> ranges = new ArrayList<>();
+        for (long from = min; ; from += step) {
+            long to = max - from < step ? max : from + step - 1;
+            ranges.add(Pair.of(from, to));
+            if (to == max) {
+                break;
+            }
+        }
+        return ranges;
+    }
+
     @Override
     public void findNegativeBalances(Consumer<Pair<Long, BigDecimal>> consumer) {
-        this.jdbcTemplate.query(
-                "select id, sum(balance) total from account group by id",
-                rs -> {
-                    Long id = rs.getLong(1);
-                    BigDecimal balance = rs.getBigDecimal(2);
-                    if (balance.compareTo(BigDecimal.ZERO) < 0) {
-                        consumer.accept(Pair.of(id, balance));
+        final String snapshot = settings.isVerifySnapshot() ? settledSnapshotClause() : "";
+
+        // Tuples share an id so no group spans two ranges
+        executeInParallel(settings.getVerifyThreads(), idRanges().stream().map(range -> (Callable<Void>) () -> {
+            streamRange(snapshot,
+                    "select id, sum(balance) total from account where id between ? and ?"
+                            + " group by id having sum(balance) < 0",
+                    range,
+                    rs -> {
+                        Pair<Long, BigDecimal> pair = Pair.of(rs.getLong(1), rs.getBigDecimal(2));
+                        synchronized (consumer) {
+                            consumer.accept(pair);
+                        }
+                    });
+            return null;
+        }).toList());
+    }
+
+    /**
+     * Stream the rows of a query over an inclusive id range in a read-only transaction,
+     * so the driver fetches in chunks rather than reading the whole result.
+     */
+    private void streamRange(String snapshot, String sql, Pair<Long, Long> range, RowCallbackHandler handler) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            final boolean autoCommit = connection.getAutoCommit();
+
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+
+            try {
+                if (!snapshot.isEmpty()) {
+                    // The snapshot of an explicit transaction is set up front
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("SET TRANSACTION" + snapshot);
                     }
                 }
-        );
+                try (PreparedStatement ps = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(streamingFetchSize());
+                    ps.setLong(1, range.getFirst());
+                    ps.setLong(2, range.getSecond());
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            handler.processRow(rs);
+                        }
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
     }
 
     @Override
     public BigDecimal sumTotalBalance() {
-        return jdbcTemplate.queryForObject("select sum(balance) from account WHERE 1=1",
-                BigDecimal.class);
+        final String snapshot = settings.isVerifySnapshot() ? settledSnapshotClause() : "";
+
+        return executeInParallel(settings.getVerifyThreads(), idRanges().stream()
+                .map(range -> (Callable<BigDecimal>) () -> jdbcTemplate.queryForObject(
+                        "select sum(balance) from account" + snapshot + " where id between ? and ?",
+                        BigDecimal.class, range.getFirst(), range.getSecond()))
+                .toList())
+                .stream()
+                .filter(Objects::nonNull)
+                .reduce(BigDecimal::add)
+                .orElse(null);
     }
 }
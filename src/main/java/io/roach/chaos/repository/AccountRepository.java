@@ -1,6 +1,7 @@
 package io.roach.chaos.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -19,6 +20,14 @@ public interface AccountRepository {
                         int count,
                         Consumer<Integer> progress);
 
+    /**
+     * Restore the balances and versions of the accounts created by createAccounts and
+     * remove any other rows, falling back to recreating the accounts if rows are missing.
+     */
+    void resetAccounts(BigDecimal initialBalance,
+                       int count,
+                       Consumer<Integer> progress);
+
     void createAccount(Account account);
 
     void deleteAccount(Account.Id id);
@@ -27,12 +36,29 @@ public interface AccountRepository {
 
     List<Account> findAccountsById(Long id, LockType lock);
 
+    /**
+     * Read and optionally lock a number of accounts in one statement, in id order.
+     */
+    List<Account> findAccountsByIds(Collection<Account.Id> ids, LockType lock);
+
+    /**
+     * Read and optionally lock all accounts of a number of account ids in one statement.
+     */
+    List<Account> findAccountsByIdIn(Collection<Long> ids, LockType lock);
+
     List<Account> findTargetAccounts(int limit, boolean random);
 
     void updateBalance(Account account);
 
     void updateBalanceCAS(Account account);
 
+    /**
+     * Update the balances of a number of accounts in one statement or batch.
+     */
+    void updateBalances(Collection<Account> accounts);
+
+    void updateBalancesCAS(Collection<Account> accounts);
+
     void addBalance(Long id,
                     AccountType type,
                     BigDecimal amount);
@@ -42,9 +68,42 @@ public interface AccountRepository {
                        BigDecimal amount,
                        Integer version);
 
+    /**
+     * Add to the balance of an account if its version is unchanged, in one round trip
+     * where the dialect allows.
+     *
+     * @return the account with its new balance and version
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the version changed
+     */
+    Account addBalanceCASReturning(Account.Id id,
+                                   BigDecimal amount,
+                                   Integer version);
+
+    /**
+     * Add the amounts to the account balances with the server-side procedure from the
+     * procedure file, in one round trip.
+     */
+    void callTransferLegs(List<Pair<Account.Id, BigDecimal>> legs,
+                          LockType lock);
+
+    /**
+     * Move the amount from credit to checking with the server-side procedure from the
+     * procedure file, if the total balance of the account tuple allows it.
+     *
+     * @return true if the amount was transferred
+     */
+    boolean callTransferTuple(Long id,
+                              BigDecimal amount);
+
     BigDecimal totalAccountBalance(Long id);
 
     void findNegativeBalances(Consumer<Pair<Long, BigDecimal>> consumer);
 
     BigDecimal sumTotalBalance();
+
+    /**
+     * Read the total balance and the number of account tuples with a negative total
+     * balance from one consistent snapshot, while the workload may be writing.
+     */
+    Pair<BigDecimal, Long> snapshotTotals();
 }
@@ -1,73 +1,131 @@
 package io.roach.chaos.repository;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+
+import io.roach.chaos.model.Account;
 import io.roach.chaos.model.AccountType;
 import io.roach.chaos.util.RandomData;
 
 public class CockroachAccountRepository extends AbstractAccountRepository {
-    protected String generateSeriesSQL() {
-        return "select unordered_unique_rowid() FROM generate_series(1, ?) AS i";
+    /**
+     * @return the id of the n:th account tuple, spread over the key space like unordered_unique_rowid()
+     */
+    protected long accountId(long n) {
+        return Long.reverse(n) >>> 1;
+    }
+
+    @Override
+    protected String snapshotClause() {
+        // A past timestamp avoids contending with writers and needs no round trip to resolve
+        return " AS OF SYSTEM TIME '-%dms'".formatted(settings.getSnapshotOffset().toMillis());
     }
 
     @Override
-    public void createAccounts(BigDecimal initialBalance,
-                               int count,
-                               Consumer<Integer> progress) {
-        jdbcTemplate.execute("TRUNCATE table account");
-
-        Collection<List<Integer>> result = IntStream.rangeClosed(1, count / 2).boxed()
-                .collect(Collectors.groupingBy(it -> it / BATCH_SIZE))
-                .values();
-
-        for (List<Integer> batch : result) {
-            List<Long> generatedIds = jdbcTemplate.query(generateSeriesSQL(),
-                    (rs, rowNum) -> rs.getLong(1),
-                    batch.size()
-            );
-
-            jdbcTemplate.update(
-                    "INSERT INTO account(id,balance,name,type)"
-                            + " select"
-                            + "  unnest(?) as id,"
-                            + "  unnest(?) as balance,"
-                            + "  unnest(?) as name,"
-                            + "  unnest(?) as type"
-                            + " ON CONFLICT (id,type) do nothing",
-                    ps -> {
-                        List<Long> ids = new ArrayList<>();
-                        List<BigDecimal> balances = new ArrayList<>();
-                        List<String> names = new ArrayList<>();
-                        List<String> types = new ArrayList<>();
-
-                        generatedIds.forEach(id -> {
-                            ids.add(id);
-                            balances.add(initialBalance);
-                            names.add(RandomData.randomString(32));
-                            types.add(AccountType.checking.name());
-
-                            ids.add(id);
-                            balances.add(initialBalance);
-                            names.add(RandomData.randomString(32));
-                            types.add(AccountType.credit.name());
-                        });
-
-                        ps.setArray(1, ps.getConnection().createArrayOf("LONG", ids.toArray()));
-                        ps.setArray(2, ps.getConnection().createArrayOf("DECIMAL", balances.toArray()));
-                        ps.setArray(3, ps.getConnection().createArrayOf("VARCHAR", names.toArray()));
-                        ps.setArray(4, ps.getConnection().createArrayOf("VARCHAR", types.toArray()));
-
-                        ps.executeLargeUpdate();
-
-                        progress.accept(generatedIds.size() * 2);
-                    });
+    protected void createAccountRange(BigDecimal initialBalance,
+                                      long firstTuple,
+                                      long lastTuple,
+                                      Consumer<Integer> progress) {
+        // Rows are generated as they are streamed rather than staged per batch
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY account(id,type,balance,name) FROM STDIN");
+            try {
+                final String balance = initialBalance.toPlainString();
+                final StringBuilder buffer = new StringBuilder();
+
+                int rows = 0;
+
+                for (long n = firstTuple; n <= lastTuple; n++) {
+                    final long id = accountId(n);
+
+                    for (AccountType type : List.of(AccountType.checking, AccountType.credit)) {
+                        buffer.append(id).append('\t')
+                                .append(type.name()).append('\t')
+                                .append(balance).append('\t')
+                                .append(RandomData.randomString(32)).append('\n');
+                    }
+
+                    rows += 2;
+
+                    if (rows >= BATCH_SIZE) {
+                        writeToCopy(copyIn, buffer);
+                        progress.accept(rows);
+                        rows = 0;
+                    }
+                }
+
+                if (rows > 0) {
+                    writeToCopy(copyIn, buffer);
+                    progress.accept(rows);
+                }
+
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    @Override
+    public void updateBalances(Collection<Account> accounts) {
+        int rowsUpdated = jdbcTemplate.update(
+                "UPDATE account SET balance = v.balance FROM (VALUES "
+                        + String.join(",", Collections.nCopies(accounts.size(), "(?::int,?::varchar,?::numeric)"))
+                        + ") AS v(id,type,balance) WHERE account.id = v.id AND account.type = v.type",
+                ps -> {
+                    int i = 1;
+                    for (Account account : accounts) {
+                        ps.setLong(i++, account.getId().getId());
+                        ps.setString(i++, account.getId().getType());
+                        ps.setBigDecimal(i++, account.getBalance());
+                    }
+                });
+
+        if (rowsUpdated != accounts.size()) {
+            throw new IllegalStateException("Rows affected != " + accounts.size());
         }
     }
 
+    @Override
+    public void updateBalancesCAS(Collection<Account> accounts) {
+        int rowsUpdated = jdbcTemplate.update(
+                "UPDATE account SET balance = v.balance, version = account.version + 1 FROM (VALUES "
+                        + String.join(",",
+                        Collections.nCopies(accounts.size(), "(?::int,?::varchar,?::numeric,?::int)"))
+                        + ") AS v(id,type,balance,version)"
+                        + " WHERE account.id = v.id AND account.type = v.type AND account.version = v.version",
+                ps -> {
+                    int i = 1;
+                    for (Account account : accounts) {
+                        ps.setLong(i++, account.getId().getId());
+                        ps.setString(i++, account.getId().getType());
+                        ps.setBigDecimal(i++, account.getBalance());
+                        ps.setInt(i++, account.getVersion());
+                    }
+                });
+
+        if (rowsUpdated != accounts.size()) {
+            throw new OptimisticLockingFailureException(
+                    "Rows affected not " + accounts.size() + " but " + rowsUpdated + " for " + accounts);
+        }
+    }
 }
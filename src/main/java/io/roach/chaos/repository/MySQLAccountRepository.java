@@ -1,17 +1,19 @@
 package io.roach.chaos.repository;
 
 import java.math.BigDecimal;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.data.util.Pair;
+import org.springframework.jdbc.core.CallableStatementCallback;
 
 import io.roach.chaos.model.Account;
 import io.roach.chaos.model.AccountType;
+import io.roach.chaos.model.LockType;
 import io.roach.chaos.util.RandomData;
 
 public class MySQLAccountRepository extends AbstractAccountRepository {
@@ -22,60 +24,105 @@ public class MySQLAccountRepository extends AbstractAccountRepository {
     }
 
     @Override
-    public List<Account> findTargetAccounts(int limit, boolean random) {
-        return jdbcTemplate.query( random? "SELECT * FROM account ORDER BY rand() LIMIT ?"
-                        : "SELECT * FROM account ORDER BY id LIMIT ?",
+    public List<Account> findAccountsByIdIn(Collection<Long> ids, LockType lock) {
+        return jdbcTemplate.query(
+                "SELECT * FROM account WHERE id IN ("
+                        + String.join(",", Collections.nCopies(ids.size(), "?"))
+                        + ")"
+                        + (lock == LockType.FOR_UPDATE ? " FOR UPDATE" :
+                        lock == LockType.FOR_SHARE ? " FOR SHARE" : ""),
                 ps -> {
-                    ps.setInt(1, limit);
-                    ps.setFetchSize(limit);
+                    int i = 1;
+                    for (Long id : ids) {
+                        ps.setLong(i++, id);
+                    }
                 }, (rs, rowNum) -> toAccount(rs));
     }
 
     @Override
-    public void createAccounts(BigDecimal initialBalance,
-                               int count,
-                               Consumer<Integer> progress) {
-        jdbcTemplate.execute("TRUNCATE table account");
-
-        for (List<Integer> batch : IntStream.rangeClosed(1, count / 2)
-                .boxed()
-                .collect(Collectors.groupingBy(it -> it / BATCH_SIZE))
-                .values()) {
-            jdbcTemplate.batchUpdate("INSERT INTO account(id,balance,name,type)"
-                    + " values(?,?,?,?)", new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
-                    ps.setLong(1, batch.get(i));
-                    ps.setBigDecimal(2, initialBalance);
-                    ps.setString(3, RandomData.randomString(32));
-                    ps.setString(4, AccountType.checking.name());
-                }
+    protected String randomSortSQL() {
+        return "SELECT * FROM account ORDER BY rand() LIMIT ?";
+    }
 
-                @Override
-                public int getBatchSize() {
-                    return batch.size();
-                }
-            });
+    @Override
+    protected int streamingFetchSize() {
+        // Row by row streaming, the driver otherwise reads the whole result
+        return Integer.MIN_VALUE;
+    }
 
-            progress.accept(batch.size());
+    @Override
+    protected void createAccountRange(BigDecimal initialBalance,
+                                      long firstTuple,
+                                      long lastTuple,
+                                      Consumer<Integer> progress) {
+        final int tuplesPerStatement = BATCH_SIZE / 2;
 
-            jdbcTemplate.batchUpdate("INSERT INTO account(id,balance,name,type)"
-                    + " values(?,?,?,?)", new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
-                    ps.setLong(1, batch.get(i));
-                    ps.setBigDecimal(2, initialBalance);
-                    ps.setString(3, RandomData.randomString(32));
-                    ps.setString(4, AccountType.credit.name());
-                }
+        for (long first = firstTuple; first <= lastTuple; first += tuplesPerStatement) {
+            final long from = first;
+            final int tuples = (int) Math.min(tuplesPerStatement, lastTuple - first + 1);
 
-                @Override
-                public int getBatchSize() {
-                    return batch.size();
+            // One multi-row insert per batch rather than relying on driver-side rewrites
+            jdbcTemplate.update("INSERT INTO account(id,balance,name,type) VALUES "
+                    + String.join(",", Collections.nCopies(tuples * 2, "(?,?,?,?)")), ps -> {
+                int i = 1;
+                for (long id = from; id < from + tuples; id++) {
+                    for (AccountType type : List.of(AccountType.checking, AccountType.credit)) {
+                        ps.setLong(i++, id);
+                        ps.setBigDecimal(i++, initialBalance);
+                        ps.setString(i++, RandomData.randomString(32));
+                        ps.setString(i++, type.name());
+                    }
                 }
             });
 
-            progress.accept(batch.size());
+            progress.accept(tuples * 2);
         }
     }
+
+    @Override
+    public Account addBalanceCASReturning(Account.Id id,
+                                          BigDecimal amount,
+                                          Integer version) {
+        // No RETURNING clause, but the updated row is locked so the read is consistent
+        addBalanceCAS(id.getId(), AccountType.valueOf(id.getType()), amount, version);
+
+        return jdbcTemplate.queryForObject(
+                "SELECT balance, version FROM account WHERE id = ? AND type = ?",
+                (rs, rowNum) -> new Account()
+                        .setId(id)
+                        .setBalance(rs.getBigDecimal(1))
+                        .setVersion(rs.getInt(2)),
+                id.getId(),
+                id.getType());
+    }
+
+    @Override
+    public void callTransferLegs(List<Pair<Account.Id, BigDecimal>> legs,
+                                 LockType lock) {
+        // No array parameters, so the legs are passed as a JSON array
+        final String json = legs.stream()
+                .map(leg -> "{\"id\":%d,\"type\":\"%s\",\"amount\":%s}".formatted(
+                        leg.getFirst().getId(), leg.getFirst().getType(), leg.getSecond().toPlainString()))
+                .collect(Collectors.joining(",", "[", "]"));
+
+        jdbcTemplate.execute("{call chaos_transfer_legs(?, ?)}", (CallableStatementCallback<Void>) cs -> {
+            cs.setString(1, json);
+            cs.setInt(2, lock == LockType.FOR_UPDATE ? 1 : 0);
+            cs.execute();
+            return null;
+        });
+    }
+
+    @Override
+    public boolean callTransferTuple(Long id,
+                                     BigDecimal amount) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute("{call chaos_transfer_tuple(?, ?, ?)}",
+                (CallableStatementCallback<Boolean>) cs -> {
+                    cs.setLong(1, id);
+                    cs.setBigDecimal(2, amount);
+                    cs.registerOutParameter(3, Types.INTEGER);
+                    cs.execute();
+                    return cs.getInt(3) == 1;
+                }));
+    }
 }
@@ -1,9 +1,22 @@
 package io.roach.chaos.repository;
 
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
 
 import io.roach.chaos.model.Account;
+import io.roach.chaos.model.AccountType;
 import io.roach.chaos.model.LockType;
+import io.roach.chaos.util.RandomData;
 
 public class OracleAccountRepository extends MySQLAccountRepository {
     @Override
@@ -20,14 +33,66 @@ public class OracleAccountRepository extends MySQLAccountRepository {
     }
 
     @Override
-    public List<Account> findTargetAccounts(int limit, boolean random) {
-        return jdbcTemplate.query(random
-                        ? "SELECT * FROM (select * from account ORDER BY DBMS_RANDOM.RANDOM) where rownum<?"
-                        : "SELECT * FROM account order by id where rownum<?",
-                ps -> {
-                    ps.setInt(1, limit);
-                    ps.setFetchSize(limit);
-                }, (rs, rowNum) -> toAccount(rs));
+    protected void createAccountRange(BigDecimal initialBalance,
+                                      long firstTuple,
+                                      long lastTuple,
+                                      Consumer<Integer> progress) {
+        final int tuplesPerBatch = BATCH_SIZE / 2;
+
+        for (long first = firstTuple; first <= lastTuple; first += tuplesPerBatch) {
+            final long from = first;
+            final int tuples = (int) Math.min(tuplesPerBatch, lastTuple - first + 1);
+
+            // The driver sends a JDBC batch as one array DML execution
+            jdbcTemplate.batchUpdate("INSERT INTO account(id,balance,name,type) VALUES (?,?,?,?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setLong(1, from + i / 2);
+                            ps.setBigDecimal(2, initialBalance);
+                            ps.setString(3, RandomData.randomString(32));
+                            ps.setString(4, i % 2 == 0 ? AccountType.checking.name() : AccountType.credit.name());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return tuples * 2;
+                        }
+                    });
+
+            progress.accept(tuples * 2);
+        }
+    }
+
+    @Override
+    protected String firstAccountsSQL() {
+        return "SELECT * FROM account ORDER BY id FETCH FIRST ? ROWS ONLY";
+    }
+
+    @Override
+    protected String randomSortSQL() {
+        return "SELECT * FROM account ORDER BY DBMS_RANDOM.RANDOM FETCH FIRST ? ROWS ONLY";
+    }
+
+    @Override
+    protected String rangeProbeSQL() {
+        return "SELECT * FROM account WHERE id >= ? ORDER BY id, type FETCH FIRST ? ROWS ONLY";
+    }
+
+    @Override
+    protected String tableSampleSQL(String percent) {
+        return "SELECT * FROM account SAMPLE BLOCK (" + percent + ")";
+    }
+
+    @Override
+    protected int snapshotIsolation() {
+        // Transaction level read consistency without repeatable read
+        return Connection.TRANSACTION_SERIALIZABLE;
+    }
+
+    @Override
+    protected int streamingFetchSize() {
+        return BATCH_SIZE;
     }
 
     @Override
@@ -56,4 +121,52 @@ public class OracleAccountRepository extends MySQLAccountRepository {
                 }, (rs, rowNum) -> toAccount(rs));
     }
 
+    @Override
+    public List<Account> findAccountsByIds(Collection<Account.Id> ids, LockType lock) {
+        if (lock == LockType.FOR_SHARE) {
+            jdbcTemplate.execute("LOCK TABLE account IN SHARE MODE");
+            return super.findAccountsByIds(ids, LockType.NONE);
+        }
+        return super.findAccountsByIds(ids, lock);
+    }
+
+    @Override
+    public List<Account> findAccountsByIdIn(Collection<Long> ids, LockType lock) {
+        if (lock == LockType.FOR_SHARE) {
+            jdbcTemplate.execute("LOCK TABLE account IN SHARE MODE");
+            return super.findAccountsByIdIn(ids, LockType.NONE);
+        }
+        return super.findAccountsByIdIn(ids, lock);
+    }
+
+    @Override
+    public Account addBalanceCASReturning(Account.Id id,
+                                          BigDecimal amount,
+                                          Integer version) {
+        Account account = jdbcTemplate.execute(
+                "BEGIN UPDATE account SET balance = balance + ?, version = version + 1"
+                        + " WHERE id = ? AND type = ? AND version = ?"
+                        + " RETURNING balance, version INTO ?, ?; ? := SQL%ROWCOUNT; END;",
+                (CallableStatementCallback<Account>) cs -> {
+                    cs.setBigDecimal(1, amount);
+                    cs.setLong(2, id.getId());
+                    cs.setString(3, id.getType());
+                    cs.setInt(4, version);
+                    cs.registerOutParameter(5, Types.NUMERIC);
+                    cs.registerOutParameter(6, Types.INTEGER);
+                    cs.registerOutParameter(7, Types.INTEGER);
+                    cs.execute();
+                    return cs.getInt(7) == 1
+                            ? new Account().setId(id).setBalance(cs.getBigDecimal(5)).setVersion(cs.getInt(6))
+                            : null;
+                });
+
+        if (account == null) {
+            throw new OptimisticLockingFailureException("id: " + id
+                    + " amount: " + amount
+                    + " version: " + version);
+        }
+
+        return account;
+    }
 }
@@ -2,7 +2,17 @@ package io.roach.chaos.repository;
 
 public class PostgresAccountRepository extends CockroachAccountRepository {
     @Override
-    protected String generateSeriesSQL() {
-        return "select i FROM generate_series(1, ?) AS i";
+    protected long accountId(long n) {
+        return n;
+    }
+
+    @Override
+    protected String snapshotClause() {
+        return "";
+    }
+
+    @Override
+    protected String tableSampleSQL(String percent) {
+        return "SELECT * FROM account TABLESAMPLE SYSTEM (" + percent + ")";
     }
 }
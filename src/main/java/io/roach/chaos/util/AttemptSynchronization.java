@@ -0,0 +1,12 @@
+package io.roach.chaos.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+
+/**
+ * Transaction synchronization that is also told when the work of a failed attempt
+ * was rolled back while the transaction stays open, as with savepoint retries, so
+ * that state staged by the attempt can be discarded.
+ */
+public interface AttemptSynchronization extends TransactionSynchronization {
+    void afterAttemptRollback();
+}
@@ -0,0 +1,14 @@
+package io.roach.chaos.util;
+
+/**
+ * Computes the time to sleep before retrying a transaction after a transient error.
+ * Instances are created per logical transaction, so implementations may keep state
+ * between the attempts of one transaction.
+ */
+public interface BackoffStrategy {
+    /**
+     * @param attempt the attempt that failed, starting at 1
+     * @return backoff time in milliseconds
+     */
+    long backoffMillis(int attempt);
+}
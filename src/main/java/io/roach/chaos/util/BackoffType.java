@@ -0,0 +1,109 @@
+package io.roach.chaos.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry backoff strategies, based on the capped exponential backoff variants
+ * described in "Exponential Backoff And Jitter" on the AWS architecture blog.
+ */
+public enum BackoffType {
+    EXPONENTIAL {
+        @Override
+        public String alias() {
+            return "exp";
+        }
+
+        @Override
+        public BackoffStrategy createInstance(boolean jitter) {
+            // The original 2^n + 100 ms, with optional 0-1000 ms uniform jitter
+            return attempt -> {
+                long extra = jitter ? ThreadLocalRandom.current().nextInt(1000) : 0;
+                return Math.min((long) (Math.pow(2.0, attempt) + 100) + extra, MAX_BACKOFF_MILLIS);
+            };
+        }
+    },
+    FULL_JITTER {
+        @Override
+        public String alias() {
+            return "full";
+        }
+
+        @Override
+        public BackoffStrategy createInstance(boolean jitter) {
+            return attempt -> ThreadLocalRandom.current().nextLong(capped(attempt) + 1);
+        }
+    },
+    EQUAL_JITTER {
+        @Override
+        public String alias() {
+            return "equal";
+        }
+
+        @Override
+        public BackoffStrategy createInstance(boolean jitter) {
+            return attempt -> {
+                long half = capped(attempt) / 2;
+                return half + ThreadLocalRandom.current().nextLong(half + 1);
+            };
+        }
+    },
+    DECORRELATED_JITTER {
+        @Override
+        public String alias() {
+            return "decorrelated";
+        }
+
+        @Override
+        public BackoffStrategy createInstance(boolean jitter) {
+            return new BackoffStrategy() {
+                private long previous = BASE_MILLIS;
+
+                @Override
+                public long backoffMillis(int attempt) {
+                    long upper = Math.max(BASE_MILLIS, previous * 3);
+                    previous = Math.min(MAX_BACKOFF_MILLIS,
+                            ThreadLocalRandom.current().nextLong(BASE_MILLIS, upper + 1));
+                    return previous;
+                }
+            };
+        }
+    },
+    FIXED {
+        @Override
+        public String alias() {
+            return "fixed";
+        }
+
+        @Override
+        public BackoffStrategy createInstance(boolean jitter) {
+            return attempt -> jitter
+                    ? ThreadLocalRandom.current().nextLong(FIXED_MILLIS / 2, FIXED_MILLIS * 3 / 2 + 1)
+                    : FIXED_MILLIS;
+        }
+    },
+    NONE {
+        @Override
+        public String alias() {
+            return "none";
+        }
+
+        @Override
+        public BackoffStrategy createInstance(boolean jitter) {
+            return attempt -> 0;
+        }
+    };
+
+    private static final long BASE_MILLIS = 2;
+
+    private static final long FIXED_MILLIS = 10;
+
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static long capped(int attempt) {
+        return Math.min(MAX_BACKOFF_MILLIS, BASE_MILLIS << Math.min(attempt, 20));
+    }
+
+    public abstract String alias();
+
+    public abstract BackoffStrategy createInstance(boolean jitter);
+}
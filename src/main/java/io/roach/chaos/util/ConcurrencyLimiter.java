@@ -0,0 +1,71 @@
+package io.roach.chaos.util;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of transactions in flight to a limit that is adjusted by a
+ * limit algorithm, based on the retry rate and service times observed over the
+ * last interval.
+ */
+public class ConcurrencyLimiter {
+    private final LimitAlgorithm algorithm;
+
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private volatile double limit;
+
+    private int inFlight;
+
+    public ConcurrencyLimiter(LimitAlgorithm algorithm, int initialLimit, int maxLimit) {
+        this.algorithm = algorithm;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(1, Math.min(initialLimit, maxLimit));
+    }
+
+    /**
+     * Wait until a transaction can be started.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= getLimit()) {
+                available.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Update the limit from what was observed over the last interval.
+     */
+    public void update(double retryRate, long p50Micros, long p99Micros) {
+        lock.lock();
+        try {
+            limit = Math.max(1, Math.min(maxLimit, algorithm.update(limit, maxLimit, retryRate, p50Micros, p99Micros)));
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+}
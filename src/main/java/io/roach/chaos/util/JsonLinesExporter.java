@@ -0,0 +1,87 @@
+package io.roach.chaos.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exporter writing one JSON object per line, keyed by the header names. Each
+ * line is flushed as it arrives, for following a run while it is in progress.
+ */
+public class JsonLinesExporter implements Exporter {
+    private final BufferedWriter writer;
+
+    private final List<String> names = new ArrayList<>();
+
+    public JsonLinesExporter(Path path) throws IOException {
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
+    }
+
+    @Override
+    public void writeHeader(List<String> names) {
+        this.names.clear();
+        this.names.addAll(names);
+    }
+
+    @Override
+    public void write(List<Object> values) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            appendString(sb, i < names.size() ? names.get(i) : "col" + i);
+            sb.append(":");
+            Object value = values.get(i);
+            if (value instanceof Number || value instanceof Boolean) {
+                sb.append(value);
+            } else if (value == null) {
+                sb.append("null");
+            } else {
+                appendString(sb, value.toString());
+            }
+        }
+        sb.append("}");
+
+        try {
+            writer.write(sb.toString());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u%04x".formatted((int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,16 @@
+package io.roach.chaos.util;
+
+/**
+ * Computes the next concurrency limit from what was observed over the last interval.
+ */
+public interface LimitAlgorithm {
+    /**
+     * @param limit       the current limit
+     * @param maxLimit    the upper bound of the limit
+     * @param retryRate   retries per completed transaction in the interval
+     * @param p50Micros   median service time in the interval
+     * @param p99Micros   P99 service time in the interval
+     * @return the next limit
+     */
+    double update(double limit, int maxLimit, double retryRate, long p50Micros, long p99Micros);
+}
@@ -0,0 +1,77 @@
+package io.roach.chaos.util;
+
+/**
+ * Concurrency limit algorithms for the adaptive limiter.
+ */
+public enum LimiterType {
+    NONE {
+        @Override
+        public String alias() {
+            return "none";
+        }
+
+        @Override
+        public LimitAlgorithm createInstance() {
+            return (limit, maxLimit, retryRate, p50Micros, p99Micros) -> maxLimit;
+        }
+    },
+    AIMD {
+        @Override
+        public String alias() {
+            return "aimd";
+        }
+
+        @Override
+        public LimitAlgorithm createInstance() {
+            // Additive increase, multiplicative decrease when retries or the P99 spike
+            return new LimitAlgorithm() {
+                private long baselineP99 = Long.MAX_VALUE;
+
+                @Override
+                public double update(double limit, int maxLimit, double retryRate, long p50Micros, long p99Micros) {
+                    baselineP99 = Math.min(baselineP99, Math.max(1, p99Micros));
+                    if (retryRate > RETRY_RATE_THRESHOLD || p99Micros > baselineP99 * LATENCY_TOLERANCE) {
+                        return limit * BACKOFF_RATIO;
+                    }
+                    return limit + 1;
+                }
+            };
+        }
+    },
+    GRADIENT {
+        @Override
+        public String alias() {
+            return "gradient";
+        }
+
+        @Override
+        public LimitAlgorithm createInstance() {
+            // Vegas style, scale the limit by the ratio of the no-load latency to the current latency
+            // and by the share of attempts that did not need a retry, plus room for a small queue
+            return new LimitAlgorithm() {
+                private long minP50 = Long.MAX_VALUE;
+
+                @Override
+                public double update(double limit, int maxLimit, double retryRate, long p50Micros, long p99Micros) {
+                    minP50 = Math.min(minP50, Math.max(1, p50Micros));
+                    double gradient = Math.max(0.5, Math.min(1.0, (double) minP50 / Math.max(1, p50Micros)));
+                    gradient *= Math.max(0.5, 1.0 - retryRate);
+                    double next = limit * gradient + Math.sqrt(limit);
+                    return limit * (1 - SMOOTHING) + next * SMOOTHING;
+                }
+            };
+        }
+    };
+
+    private static final double RETRY_RATE_THRESHOLD = 0.05;
+
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private static final double BACKOFF_RATIO = 0.75;
+
+    private static final double SMOOTHING = 0.2;
+
+    public abstract String alias();
+
+    public abstract LimitAlgorithm createInstance();
+}
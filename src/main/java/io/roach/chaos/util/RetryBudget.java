@@ -0,0 +1,90 @@
+package io.roach.chaos.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket bounding client-side retries to a share of first attempts, across
+ * all workers. Each first attempt deposits a fraction of a token and each retry
+ * withdraws a whole token. When a retry finds the bucket empty, the circuit opens
+ * and new transactions are shed for a while, rather than multiplying the load on
+ * an overloaded database.
+ */
+public class RetryBudget {
+    /**
+     * Tokens are kept in hundredths, so deposits of a percent of a token add up exactly.
+     */
+    private static final long TOKEN = 100;
+
+    private static final long MAX_TOKENS = 100 * TOKEN;
+
+    private static final long OPEN_NANOS = 1_000_000_000L;
+
+    public static RetryBudget unlimited() {
+        return new RetryBudget(0);
+    }
+
+    private final int percent;
+
+    private final LongSupplier nanoClock;
+
+    private long tokens = MAX_TOKENS;
+
+    private long openUntil;
+
+    private boolean open;
+
+    /**
+     * @param percent retries allowed as percent of first attempts, or 0 for no limit
+     */
+    public RetryBudget(int percent) {
+        this(percent, System::nanoTime);
+    }
+
+    RetryBudget(int percent, LongSupplier nanoClock) {
+        this.percent = percent;
+        this.nanoClock = nanoClock;
+    }
+
+    public boolean isEnabled() {
+        return percent > 0;
+    }
+
+    /**
+     * Register a first attempt.
+     *
+     * @return false if the circuit is open and the transaction should be shed
+     */
+    public synchronized boolean allowAttempt() {
+        if (!isEnabled()) {
+            return true;
+        }
+        if (open && nanoClock.getAsLong() - openUntil < 0) {
+            return false;
+        }
+        open = false;
+        tokens = Math.min(MAX_TOKENS, tokens + percent);
+        return true;
+    }
+
+    /**
+     * Withdraw a token for a retry, opening the circuit if there is none.
+     *
+     * @return false if the budget is exhausted and the transaction should not be retried
+     */
+    public synchronized boolean tryAcquireRetry() {
+        if (!isEnabled()) {
+            return true;
+        }
+        if (tokens >= TOKEN) {
+            tokens -= TOKEN;
+            return true;
+        }
+        open = true;
+        openUntil = nanoClock.getAsLong() + OPEN_NANOS;
+        return false;
+    }
+
+    public synchronized boolean isOpen() {
+        return open && nanoClock.getAsLong() - openUntil < 0;
+    }
+}
@@ -0,0 +1,11 @@
+package io.roach.chaos.util;
+
+/**
+ * Thrown when a transaction is not attempted or not retried because the retry
+ * budget is exhausted. Counted separately from failed transactions.
+ */
+public class RetryBudgetExhaustedException extends RuntimeException {
+    public RetryBudgetExhaustedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,42 @@
+package io.roach.chaos.util;
+
+import javax.sql.DataSource;
+
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * How transactions are retried on transient errors.
+ */
+public enum RetryMode {
+    RESTART {
+        @Override
+        public String alias() {
+            return "restart";
+        }
+
+        @Override
+        public RetryableTransactionWrapper createInstance(PlatformTransactionManager transactionManager,
+                                                          DataSource dataSource) {
+            // Roll back and begin a new transaction
+            return new RetryableTransactionWrapper(transactionManager);
+        }
+    },
+    SAVEPOINT {
+        @Override
+        public String alias() {
+            return "savepoint";
+        }
+
+        @Override
+        public RetryableTransactionWrapper createInstance(PlatformTransactionManager transactionManager,
+                                                          DataSource dataSource) {
+            // CockroachDB only
+            return new SavepointTransactionWrapper(transactionManager, dataSource);
+        }
+    };
+
+    public abstract String alias();
+
+    public abstract RetryableTransactionWrapper createInstance(PlatformTransactionManager transactionManager,
+                                                               DataSource dataSource);
+}
@@ -2,14 +2,7 @@ package io.roach.chaos.util;
 
 import java.lang.reflect.UndeclaredThrowableException;
 import java.sql.SQLException;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.DoubleSummaryStatistics;
-import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
 
 import org.springframework.core.NestedExceptionUtils;
 import org.springframework.dao.ConcurrencyFailureException;
@@ -20,15 +13,16 @@ import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 public class RetryableTransactionWrapper extends TransactionWrapper {
-    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
-
     private static final int MAX_RETRIES = 30;
 
-    private boolean retryJitter;
+    protected BackoffStrategy backoffStrategy = BackoffType.EXPONENTIAL.createInstance(false);
+
+    protected int maxRetries = MAX_RETRIES;
 
-    private int maxRetries = MAX_RETRIES;
+    protected RetryBudget retryBudget = RetryBudget.unlimited();
 
     public RetryableTransactionWrapper(PlatformTransactionManager transactionManager) {
         super(transactionManager);
@@ -39,88 +33,190 @@ public class RetryableTransactionWrapper extends TransactionWrapper {
         return this;
     }
 
-    public RetryableTransactionWrapper setRetryJitter(boolean retryJitter) {
-        this.retryJitter = retryJitter;
+    public RetryableTransactionWrapper setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+        return this;
+    }
+
+    public RetryableTransactionWrapper setBackoffStrategy(BackoffStrategy backoffStrategy) {
+        this.backoffStrategy = backoffStrategy;
         return this;
     }
 
     @Override
-    public <T> T execute(TransactionCallback<T> action,
-                         Consumer<List<Duration>> transactionTimes) {
+    public <T> T execute(TransactionCallback<T> action) {
         final DefaultTransactionDefinition transactionDefinition = new DefaultTransactionDefinition();
         transactionDefinition.setName(Thread.currentThread().getName());
         transactionDefinition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
         transactionDefinition.setIsolationLevelName("ISOLATION_" + isolationLevel.name());
 
-        final List<Duration> times = new ArrayList<>(maxRetries);
+        admit();
 
-        for (int iteration = 1; iteration <= maxRetries; iteration++) {
-            final Instant startTime = Instant.now();
+        long totalTime = 0;
 
-            final TransactionStatus status = transactionManager.getTransaction(transactionDefinition);
+        long totalBackoffTime = 0;
 
-            try {
-                T result = action.doInTransaction(status);
+        boolean retried = false;
 
-                transactionManager.commit(status);
+        long retryStartTime = 0;
 
-                times.add(Duration.between(startTime, Instant.now()));
-                transactionTimes.accept(times);
+        try {
+            for (int iteration = 1; iteration <= maxRetries; iteration++) {
+                final long startTime = System.nanoTime();
 
-                if (iteration > 1) {
-                    final DoubleSummaryStatistics summary = times
-                            .stream()
-                            .mapToDouble(Duration::toMillis)
-                            .sorted()
-                            .summaryStatistics();
-                    logger.debug("Recovered from transient error in call %d/%d (total: %.0f ms, avg: %.0f ms)"
-                            .formatted(
-                                    iteration,
-                                    maxRetries,
-                                    summary.getSum(),
-                                    summary.getAverage()
-                            ));
+                if (iteration == 2) {
+                    // Only the backoff sleep separates the first failure from the retry
+                    retryStartTime = startTime - totalBackoffTime;
+                    retried = true;
                 }
 
-                return result;
-            } catch (TransactionSystemException ex) {
-                // retry but skip rollback on commit errors
-                handleTransientException(ex, iteration);
-            } catch (TransientDataAccessException ex) {
-                rollbackOnException(status, ex);
-                handleTransientException(ex, iteration);
-            } catch (Exception ex) {
-                rollbackOnException(status, ex);
-
-                // Extract SQL exception state
-                Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
-                if (cause instanceof SQLException sqlException) {
-                    if ("40001".equals(sqlException.getSQLState()) ||
-                            "40P01".equals(sqlException.getSQLState())) { // deadlock loser
-                        handleTransientException(sqlException, iteration);
+                final TransactionStatus status = transactionManager.getTransaction(transactionDefinition);
+
+                final long beginTime = recordPhase(beginTimer, startTime);
+
+                long statementTime = 0;
+
+                try {
+                    T result = action.doInTransaction(status);
+
+                    statementTime = recordPhase(statementTimer, beginTime);
+
+                    transactionManager.commit(status);
+
+                    recordPhase(commitTimer, statementTime);
+
+                    totalTime += recordAttempt(startTime);
+
+                    if (iteration > 1) {
+                        recoveredCounter.increment();
+                    }
+
+                    if (iteration > 1 && logger.isDebugEnabled()) {
+                        logger.debug("Recovered from transient error in call %d/%d (total: %.0f ms, avg: %.0f ms)"
+                                .formatted(
+                                        iteration,
+                                        maxRetries,
+                                        totalTime / 1e6,
+                                        totalTime / 1e6 / iteration
+                                ));
+                    }
+
+                    return result;
+                } catch (TransactionSystemException ex) {
+                    // retry but skip rollback on commit errors
+                    totalTime += recordFailedAttempt(startTime, beginTime, statementTime);
+                    totalBackoffTime += handleTransientException(ex, iteration);
+                } catch (TransientDataAccessException ex) {
+                    rollbackOnException(status, ex);
+                    totalTime += recordFailedAttempt(startTime, beginTime, statementTime);
+                    totalBackoffTime += handleTransientException(ex, iteration);
+                } catch (Exception ex) {
+                    rollbackOnException(status, ex);
+
+                    // Extract SQL exception state
+                    Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+                    if (cause instanceof SQLException sqlException) {
+                        if ("40001".equals(sqlException.getSQLState()) ||
+                                "40P01".equals(sqlException.getSQLState())) { // deadlock loser
+                            totalTime += recordFailedAttempt(startTime, beginTime, statementTime);
+                            totalBackoffTime += handleTransientException(sqlException, iteration);
+                        } else {
+                            throw ex;
+                        }
                     } else {
                         throw ex;
                     }
-                } else {
-                    throw ex;
+                } catch (Throwable ex) {
+                    // Fatal error
+                    rollbackOnException(status, ex);
+                    throw new UndeclaredThrowableException(ex,
+                            "TransactionCallback threw undeclared checked exception");
                 }
-            } catch (Throwable ex) {
-                // Fatal error
-                rollbackOnException(status, ex);
-                throw new UndeclaredThrowableException(ex,
-                        "TransactionCallback threw undeclared checked exception");
-            }
 
-            times.add(Duration.between(startTime, Instant.now()));
+                if (iteration < maxRetries) {
+                    retryCounter.increment();
+                }
+            }
+        } finally {
+            recordOutcome(totalBackoffTime, retried, retryStartTime);
         }
 
         throw new ConcurrencyFailureException("Too many transient errors %d - giving up".formatted(maxRetries));
     }
 
-    private void handleTransientException(Exception exception,
-                                          int numCalls) {
+    /**
+     * Register a first attempt with the retry budget.
+     *
+     * @throws RetryBudgetExhaustedException if the transaction is shed
+     */
+    protected void admit() {
+        if (!retryBudget.allowAttempt()) {
+            shedCounter.increment();
+            throw new RetryBudgetExhaustedException("Retry budget circuit open - shedding transaction", null);
+        }
+    }
+
+    protected static boolean isTransient(Throwable ex) {
+        if (ex instanceof TransientDataAccessException) {
+            return true;
+        }
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+        return cause instanceof SQLException sqlException
+                && ("40001".equals(sqlException.getSQLState()) || "40P01".equals(sqlException.getSQLState()));
+    }
+
+    /**
+     * Record the backoff of a logical transaction and, if it was retried, the time
+     * from its first failure to the outcome.
+     */
+    protected void recordOutcome(long totalBackoffTime, boolean retried, long retryStartTime) {
+        totalBackoffTimer.recordNanos(totalBackoffTime);
+        if (retried) {
+            retriedCounter.increment();
+            retryTimer.recordNanos(System.nanoTime() - retryStartTime);
+        }
+    }
+
+    /**
+     * Notify the synchronizations of the current transaction that the work of the
+     * failed attempt was rolled back, for retries within the same transaction.
+     */
+    protected void afterAttemptRollback() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.getSynchronizations().stream()
+                    .filter(AttemptSynchronization.class::isInstance)
+                    .map(AttemptSynchronization.class::cast)
+                    .forEach(AttemptSynchronization::afterAttemptRollback);
+        }
+    }
+
+    protected long recordAttempt(long startTime) {
+        final long time = System.nanoTime() - startTime;
+        transactionTimer.recordNanos(time);
+        return time;
+    }
+
+    protected long recordFailedAttempt(long startTime, long beginTime, long statementTime) {
+        recordFailedPhase(beginTime, statementTime);
+        return recordAttempt(startTime);
+    }
+
+    /**
+     * @return time spent in backoff in nanos
+     */
+    protected long handleTransientException(Exception exception,
+                                            int numCalls) {
+        if (isDeadlock(exception)) {
+            deadlockCounter.increment();
+        }
+
+        if (numCalls < maxRetries && !retryBudget.tryAcquireRetry()) {
+            budgetExhaustedCounter.increment();
+            throw new RetryBudgetExhaustedException("Retry budget exhausted - giving up", exception);
+        }
+
         try {
-            long backoffMillis = backoffMillis(numCalls);
+            long backoffMillis = backoffStrategy.backoffMillis(numCalls);
             if (logger.isWarnEnabled()) {
                 if (exception instanceof SQLException) {
                     logger.warn("Transient SQL error (%s) in call %d/%d (backoff for %d ms): %s"
@@ -138,15 +234,16 @@ public class RetryableTransactionWrapper extends TransactionWrapper {
                                     exception.toString()));
                 }
             }
-            TimeUnit.MILLISECONDS.sleep(backoffMillis);
+            final long startTime = System.nanoTime();
+            try {
+                TimeUnit.MILLISECONDS.sleep(backoffMillis);
+            } finally {
+                backoffTimer.recordNanos(System.nanoTime() - startTime);
+            }
+            return System.nanoTime() - startTime;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return 0;
         }
     }
-
-    private long backoffMillis(int numCalls) {
-        long jitter = retryJitter ? ThreadLocalRandom.current().nextInt(1000) : 0;
-        double expBackoff = Math.pow(2.0, numCalls) + 100;
-        return Math.min((long) (expBackoff + jitter), MAX_BACKOFF.toMillis());
-    }
 }
@@ -0,0 +1,106 @@
+package io.roach.chaos.util;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+
+/**
+ * Retries transient errors with the CockroachDB client-side retry protocol. The
+ * transaction is retried from {@code SAVEPOINT cockroach_restart} rather than rolled
+ * back, which keeps the connection and the transaction record, including the
+ * priority it gained from earlier aborts. {@code RELEASE SAVEPOINT} commits the
+ * transaction and may also fail with a retryable error.
+ */
+public class SavepointTransactionWrapper extends RetryableTransactionWrapper {
+    private static final String SAVEPOINT_NAME = "cockroach_restart";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SavepointTransactionWrapper(PlatformTransactionManager transactionManager, DataSource dataSource) {
+        super(transactionManager);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public <T> T execute(TransactionCallback<T> action) {
+        final DefaultTransactionDefinition transactionDefinition = new DefaultTransactionDefinition();
+        transactionDefinition.setName(Thread.currentThread().getName());
+        transactionDefinition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionDefinition.setIsolationLevelName("ISOLATION_" + isolationLevel.name());
+
+        admit();
+
+        final long startTime = System.nanoTime();
+
+        final TransactionStatus status = transactionManager.getTransaction(transactionDefinition);
+
+        final long beginTime = recordPhase(beginTimer, startTime);
+
+        long totalBackoffTime = 0;
+
+        boolean retried = false;
+
+        long retryStartTime = 0;
+
+        try {
+            jdbcTemplate.execute("SAVEPOINT " + SAVEPOINT_NAME);
+
+            for (int iteration = 1; iteration <= maxRetries; iteration++) {
+                // The first attempt includes the begin, retries start from the savepoint
+                final long attemptTime = iteration == 1 ? startTime : System.nanoTime();
+                final long statementStartTime = iteration == 1 ? beginTime : attemptTime;
+
+                if (iteration == 2) {
+                    retryStartTime = attemptTime - totalBackoffTime;
+                    retried = true;
+                }
+
+                long statementTime = 0;
+
+                try {
+                    T result = action.doInTransaction(status);
+
+                    statementTime = recordPhase(statementTimer, statementStartTime);
+
+                    jdbcTemplate.execute("RELEASE SAVEPOINT " + SAVEPOINT_NAME);
+                    transactionManager.commit(status);
+
+                    recordPhase(commitTimer, statementTime);
+                    recordAttempt(attemptTime);
+
+                    if (iteration > 1) {
+                        recoveredCounter.increment();
+                    }
+
+                    return result;
+                } catch (RuntimeException ex) {
+                    if (status.isCompleted() || !isTransient(ex)) {
+                        recordFailedPhase(statementStartTime, statementTime);
+                        throw ex;
+                    }
+                    recordFailedAttempt(attemptTime, statementStartTime, statementTime);
+                    jdbcTemplate.execute("ROLLBACK TO SAVEPOINT " + SAVEPOINT_NAME);
+                    afterAttemptRollback();
+                    totalBackoffTime += handleTransientException(ex, iteration);
+                }
+
+                if (iteration < maxRetries) {
+                    retryCounter.increment();
+                }
+            }
+
+            throw new ConcurrencyFailureException("Too many transient errors %d - giving up".formatted(maxRetries));
+        } catch (RuntimeException | Error ex) {
+            rollbackOnException(status, ex);
+            throw ex;
+        } finally {
+            recordOutcome(totalBackoffTime, retried, retryStartTime);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.roach.chaos.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * CSV exporter that writes and flushes each line as it arrives, for following
+ * a run while it is in progress.
+ */
+public class StreamingCsvExporter implements Exporter {
+    private final BufferedWriter writer;
+
+    public StreamingCsvExporter(Path path) throws IOException {
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
+    }
+
+    @Override
+    public void writeHeader(List<String> names) {
+        writeLine(String.join(",", names));
+    }
+
+    @Override
+    public void write(List<Object> values) {
+        writeLine(values.stream().map(Objects::toString).collect(Collectors.joining(",")));
+    }
+
+    private void writeLine(String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
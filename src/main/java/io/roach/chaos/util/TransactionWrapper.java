@@ -1,14 +1,11 @@
 package io.roach.chaos.util;
 
 import java.lang.reflect.UndeclaredThrowableException;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Consumer;
+import java.sql.SQLException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.dao.DataAccessException;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
@@ -18,6 +15,9 @@ import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.transaction.support.TransactionCallback;
 
+import io.roach.chaos.metrics.Counter;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.Timer;
 import io.roach.chaos.model.IsolationLevel;
 
 public class TransactionWrapper {
@@ -27,8 +27,52 @@ public class TransactionWrapper {
 
     protected IsolationLevel isolationLevel = IsolationLevel.SERIALIZABLE;
 
+    protected Timer transactionTimer;
+
+    protected Counter retryCounter;
+
+    protected Timer backoffTimer;
+
+    protected Timer totalBackoffTimer;
+
+    protected Timer beginTimer;
+
+    protected Timer statementTimer;
+
+    protected Timer commitTimer;
+
+    protected Counter budgetExhaustedCounter;
+
+    protected Counter shedCounter;
+
+    protected Counter retriedCounter;
+
+    protected Counter recoveredCounter;
+
+    protected Timer retryTimer;
+
+    protected Counter deadlockCounter;
+
     public TransactionWrapper(PlatformTransactionManager transactionManager) {
         this.transactionManager = transactionManager;
+        setMetrics(new Metrics());
+    }
+
+    public TransactionWrapper setMetrics(Metrics metrics) {
+        this.transactionTimer = metrics.timer(Metrics.TRANSACTION_TIME);
+        this.retryCounter = metrics.counter(Metrics.RETRIES);
+        this.backoffTimer = metrics.timer(Metrics.BACKOFF_TIME);
+        this.totalBackoffTimer = metrics.timer(Metrics.TOTAL_BACKOFF_TIME);
+        this.beginTimer = metrics.timer(Metrics.BEGIN_TIME);
+        this.statementTimer = metrics.timer(Metrics.STATEMENT_TIME);
+        this.commitTimer = metrics.timer(Metrics.COMMIT_TIME);
+        this.budgetExhaustedCounter = metrics.counter(Metrics.BUDGET_EXHAUSTED);
+        this.shedCounter = metrics.counter(Metrics.SHED);
+        this.retriedCounter = metrics.counter(Metrics.RETRIED);
+        this.recoveredCounter = metrics.counter(Metrics.RECOVERED);
+        this.retryTimer = metrics.timer(Metrics.RETRY_TIME);
+        this.deadlockCounter = metrics.counter(Metrics.DEADLOCKS);
+        return this;
     }
 
     public TransactionWrapper setIsolationLevel(IsolationLevel isolationLevel) {
@@ -36,28 +80,37 @@ public class TransactionWrapper {
         return this;
     }
 
-    public <T> T execute(TransactionCallback<T> action,
-                         Consumer<List<Duration>> transactionTimes) {
+    public <T> T execute(TransactionCallback<T> action) {
         final DefaultTransactionDefinition transactionDefinition = new DefaultTransactionDefinition();
         transactionDefinition.setName(Thread.currentThread().getName());
         transactionDefinition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
         transactionDefinition.setIsolationLevelName("ISOLATION_" + isolationLevel.name());
 
-        final Instant startTime = Instant.now();
+        final long startTime = System.nanoTime();
 
         final TransactionStatus status = transactionManager.getTransaction(transactionDefinition);
 
+        final long beginTime = recordPhase(beginTimer, startTime);
+
+        long statementTime = 0;
+
         try {
             T result = action.doInTransaction(status);
 
+            statementTime = recordPhase(statementTimer, beginTime);
+
             transactionManager.commit(status);
 
-            final List<Duration> times = new ArrayList<>();
-            times.add(Duration.between(startTime, Instant.now()));
-            transactionTimes.accept(times);
+            recordPhase(commitTimer, statementTime);
+
+            transactionTimer.recordNanos(System.nanoTime() - startTime);
 
             return result;
         } catch (DataAccessException ex) {
+            recordFailedPhase(beginTime, statementTime);
+            if (isDeadlock(ex)) {
+                deadlockCounter.increment();
+            }
             rollbackOnException(status, ex);
             throw ex;
         } catch (Throwable ex) {
@@ -67,6 +120,43 @@ public class TransactionWrapper {
         }
     }
 
+    /**
+     * @return true if the transaction was aborted as a deadlock victim (PostgreSQL
+     * 40P01, MySQL 1213 or Oracle ORA-00060)
+     */
+    protected static boolean isDeadlock(Throwable ex) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+        if (cause instanceof SQLException sqlException) {
+            return "40P01".equals(sqlException.getSQLState())
+                    || ("40001".equals(sqlException.getSQLState()) && sqlException.getErrorCode() == 1213)
+                    || ("61000".equals(sqlException.getSQLState()) && sqlException.getErrorCode() == 60);
+        }
+        return false;
+    }
+
+    /**
+     * Record the time of a failed attempt in the phase that was running, which is
+     * the commit if the statements completed.
+     */
+    protected void recordFailedPhase(long beginTime, long statementTime) {
+        if (statementTime > 0) {
+            recordPhase(commitTimer, statementTime);
+        } else {
+            recordPhase(statementTimer, beginTime);
+        }
+    }
+
+    /**
+     * Record the time since the start of a transaction phase.
+     *
+     * @return end time of the phase, as start of the next
+     */
+    protected long recordPhase(Timer timer, long startTime) {
+        final long now = System.nanoTime();
+        timer.recordNanos(now - startTime);
+        return now;
+    }
+
     protected void rollbackOnException(TransactionStatus status, Throwable ex) throws TransactionException {
         try {
             if (!status.isCompleted()) {
@@ -1,26 +1,34 @@
 package io.roach.chaos.workload;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.util.Pair;
 import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
 import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import io.roach.chaos.Settings;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.model.Account;
+import io.roach.chaos.repository.AbstractAccountRepository;
 import io.roach.chaos.repository.AccountRepository;
 import io.roach.chaos.util.AsciiArt;
 import io.roach.chaos.util.ColoredLogger;
-import io.roach.chaos.util.RetryableTransactionWrapper;
+import io.roach.chaos.util.RetryBudget;
 import io.roach.chaos.util.TransactionWrapper;
 
 @Component
 public abstract class AbstractWorkload implements Workload {
+    protected static final BigDecimal INITIAL_BALANCE = new BigDecimal("500.00");
+
     protected final ColoredLogger logger = ColoredLogger.newInstance();
 
     @Autowired
@@ -32,16 +40,25 @@ public abstract class AbstractWorkload implements Workload {
     @Autowired
     protected DataSource dataSource;
 
+    @Autowired
+    protected Metrics metrics;
+
     @Autowired
     private PlatformTransactionManager platformTransactionManager;
 
+    @Autowired
+    private RetryBudget retryBudget;
+
     protected TransactionWrapper transactionWrapper() {
         if (settings.isSkipRetry()) {
             return new TransactionWrapper(platformTransactionManager)
+                    .setMetrics(metrics)
                     .setIsolationLevel(settings.getIsolationLevel());
         }
-        return new RetryableTransactionWrapper(platformTransactionManager)
-                .setRetryJitter(settings.isRetryJitter())
+        return settings.getRetryMode().createInstance(platformTransactionManager, dataSource)
+                .setBackoffStrategy(settings.getBackoffType().createInstance(settings.isRetryJitter()))
+                .setRetryBudget(retryBudget)
+                .setMetrics(metrics)
                 .setIsolationLevel(settings.getIsolationLevel());
     }
 
@@ -67,20 +84,103 @@ public abstract class AbstractWorkload implements Workload {
             DatabasePopulatorUtils.execute(populator, dataSource);
         }
 
+        if (settings.isProcedureMode() && !settings.isAgent()) {
+            // Installed even when reusing the schema, the scripts replace any previous version
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+            populator.addScript(new ClassPathResource(settings.getProcedureFile()));
+            populator.setSeparator("/");
+            populator.setCommentPrefixes("--");
+
+            DatabasePopulatorUtils.execute(populator, dataSource);
+        }
+
         if (!settings.isSkipInit()) {
             AtomicInteger c = new AtomicInteger();
+
+            final long startTime = System.nanoTime();
+
             accountRepository.createAccounts(
-                    new BigDecimal("500.00"), settings.getNumAccounts(),
+                    INITIAL_BALANCE, settings.getNumAccounts(),
                     v -> AsciiArt.printProgressBar(
                             settings.getNumAccounts(),
                             c.addAndGet(v),
                             "Creating %,d accounts".formatted(settings.getNumAccounts())
                     ));
+
+            final double seconds = (System.nanoTime() - startTime) / 1e9;
+
+            logger.info("Created %,d accounts in %.1f s (%,.0f rows/s) on up to %d connections"
+                    .formatted(c.get(), seconds, c.get() / seconds, settings.getSeedThreads()));
         }
 
         doBeforeExecutions();
     }
 
+    @Override
+    public final void resetExecutions() {
+        AtomicInteger c = new AtomicInteger();
+        accountRepository.resetAccounts(
+                INITIAL_BALANCE, settings.getNumAccounts(),
+                v -> AsciiArt.printProgressBar(
+                        settings.getNumAccounts(),
+                        c.addAndGet(v),
+                        "Resetting %,d accounts".formatted(settings.getNumAccounts())
+                ));
+
+        doBeforeExecutions();
+    }
+
+    /**
+     * @return the target accounts for the configured selection and sampling method
+     */
+    protected List<Account> findTargetAccounts() {
+        final long startTime = System.nanoTime();
+
+        List<Account> accounts = accountRepository.findTargetAccounts(settings.getSelection(),
+                settings.isRandomSelection());
+
+        logger.info("Selected %,d target accounts (%s) in %.1f ms".formatted(
+                accounts.size(),
+                settings.isRandomSelection() ? settings.getSamplingMethod() : "SEQUENTIAL",
+                (System.nanoTime() - startTime) / 1e6));
+
+        return accounts;
+    }
+
+    /**
+     * Split keys into chunks small enough for one multi-key statement.
+     */
+    protected static <T> List<List<T>> partition(List<T> keys) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += AbstractAccountRepository.BATCH_SIZE) {
+            chunks.add(keys.subList(i, Math.min(keys.size(), i + AbstractAccountRepository.BATCH_SIZE)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Check the total balance and, optionally, that no account tuple has a negative
+     * total balance, from one snapshot.
+     *
+     * @param expectedTotal the expected total balance or null if the total may change
+     */
+    protected List<String> verifyTotals(BigDecimal expectedTotal, boolean nonNegative) {
+        Pair<BigDecimal, Long> totals = accountRepository.snapshotTotals();
+
+        List<String> violations = new ArrayList<>();
+        if (expectedTotal != null && expectedTotal.compareTo(totals.getFirst()) != 0) {
+            violations.add("Total balance %s != %s".formatted(totals.getFirst(), expectedTotal));
+        }
+        if (nonNegative && totals.getSecond() > 0) {
+            violations.add("%,d account tuples with a negative total balance".formatted(totals.getSecond()));
+        }
+        return violations;
+    }
+
+    /**
+     * Invoked before each run once the dataset is in place. Implementations should
+     * clear any observations from a previous run.
+     */
     protected void doBeforeExecutions() {
     }
 }
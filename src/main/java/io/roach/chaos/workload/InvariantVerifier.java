@@ -0,0 +1,115 @@
+package io.roach.chaos.workload;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.dao.DataAccessException;
+
+import io.roach.chaos.metrics.Counter;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.PoolMetricsTrackerFactory;
+import io.roach.chaos.metrics.Timer;
+import io.roach.chaos.util.ColoredLogger;
+
+/**
+ * Checks the invariants of a workload against a consistent snapshot at a fixed
+ * interval while the workload is running, so that violations can be placed in time
+ * rather than only be found by the consistency check after the run. The checks run
+ * on a thread of their own and are recorded in a detached metrics scope, including
+ * their pool wait, so the load they add stays out of the workload totals.
+ */
+public class InvariantVerifier implements AutoCloseable {
+    private final ColoredLogger logger = ColoredLogger.newInstance();
+
+    private final Workload workload;
+
+    private final Counter checks;
+
+    private final Counter violations;
+
+    private final Timer verifyTimer;
+
+    private final Timer poolWaitTimer;
+
+    private final AtomicLong intervalViolations = new AtomicLong();
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    public InvariantVerifier(Workload workload, Metrics metrics) {
+        final Metrics verifierMetrics = metrics.detachedScope(Metrics.VERIFIER_SCOPE);
+        this.workload = workload;
+        this.checks = verifierMetrics.counter(Metrics.INVARIANT_CHECKS);
+        this.violations = verifierMetrics.counter(Metrics.INVARIANT_VIOLATIONS);
+        this.verifyTimer = verifierMetrics.timer(Metrics.INVARIANT_CHECK_TIME);
+        this.poolWaitTimer = verifierMetrics.timer(Metrics.POOL_WAIT_TIME);
+    }
+
+    public InvariantVerifier start(Duration interval) {
+        running = true;
+        thread = Thread.ofPlatform()
+                .name("invariant-verifier")
+                .daemon()
+                .start(() -> verifyUntilClosed(interval));
+        return this;
+    }
+
+    private void verifyUntilClosed(Duration interval) {
+        PoolMetricsTrackerFactory.recordCallingThreadInto(poolWaitTimer);
+        while (running) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(interval.toNanos());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (running) {
+                verifyOnce();
+            }
+        }
+    }
+
+    private void verifyOnce() {
+        final long startTime = System.nanoTime();
+        try {
+            List<String> violated = workload.verifyInvariants();
+            checks.increment();
+            if (!violated.isEmpty()) {
+                violations.add(violated.size());
+                intervalViolations.addAndGet(violated.size());
+                final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+                violated.forEach(violation -> logger.error("Invariant violated at %s: %s".formatted(now, violation)));
+            }
+        } catch (DataAccessException e) {
+            // Not counted as a violation, the snapshot could not be read
+            logger.warn("Invariant check failed: %s".formatted(e.getMessage()));
+        } finally {
+            verifyTimer.recordNanos(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * @return number of violations since the previous call, for the interval time series
+     */
+    public long drainViolations() {
+        return intervalViolations.getAndSet(0);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -2,15 +2,20 @@ package io.roach.chaos.workload;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 
+import org.springframework.data.util.Pair;
 import org.springframework.transaction.support.TransactionCallback;
 
 import io.roach.chaos.model.Account;
+import io.roach.chaos.model.ExecutionMode;
+import io.roach.chaos.model.LockOrder;
 import io.roach.chaos.util.AsciiArt;
 import io.roach.chaos.util.TransactionWrapper;
 import io.roach.chaos.util.Tuple;
@@ -23,6 +28,8 @@ public class LostUpdate extends AbstractWorkload {
 
     private BigDecimal initialBalance;
 
+    private int anomalyCount;
+
     @Override
     public void validateSettings() {
         if (settings.getSelection() <= settings.getContentionLevel()) {
@@ -31,7 +38,7 @@ public class LostUpdate extends AbstractWorkload {
     }
 
     @Override
-    public List<Duration> oneExecution() {
+    public void oneExecution() {
         final Collection<Account> accounts = selectRandomUnique(accountSelection, settings.getContentionLevel());
 
         final BigDecimal amount = BigDecimal.valueOf(ThreadLocalRandom.current().nextDouble(1, 10))
@@ -47,13 +54,48 @@ public class LostUpdate extends AbstractWorkload {
             }
         }
 
+        if (settings.getLockOrder() != LockOrder.NONE) {
+            // Acquire row locks in the same order in all transactions to avoid deadlocks
+            legs.sort(Comparator.comparing(leg -> leg.getA().getId()));
+        }
+
+        // Batched legs are read with one statement and written with another
+        final boolean singleRead = settings.isBatchLegs() || settings.getLockOrder() == LockOrder.SINGLE_STATEMENT;
+
+        if (settings.getExecutionMode() == ExecutionMode.PROCEDURE) {
+            // The read-modify-write of all legs runs server-side in one round trip
+            final List<Pair<Account.Id, BigDecimal>> procedureLegs = legs.stream()
+                    .map(leg -> Pair.of(leg.getA().getId(), leg.getB()))
+                    .toList();
+
+            transactionWrapper().execute(status -> {
+                accountRepository.callTransferLegs(procedureLegs, settings.getLockType());
+                return null;
+            });
+            return;
+        }
+
         TransactionCallback<Void> callback = status -> {
             BigDecimal checksum = BigDecimal.ZERO;
 
+            final Map<Account.Id, Account> lockedAccounts = new HashMap<>();
+
+            if (singleRead) {
+                accountRepository.findAccountsByIds(legs.stream().map(leg -> leg.getA().getId()).toList(),
+                                settings.getLockType())
+                        .forEach(account -> lockedAccounts.put(account.getId(), account));
+            }
+
+            final List<Account> updatedAccounts = new ArrayList<>();
+
             for (Tuple<Account, BigDecimal> leg : legs) {
-                Account account = accountRepository.findAccountById(leg.getA().getId(), settings.getLockType());
+                Account account = singleRead
+                        ? lockedAccounts.get(leg.getA().getId())
+                        : accountRepository.findAccountById(leg.getA().getId(), settings.getLockType());
 
-                if (settings.isOptimisticLocking()) {
+                if (settings.isBatchLegs()) {
+                    updatedAccounts.add(account.addBalance(leg.getB()));
+                } else if (settings.isOptimisticLocking()) {
                     accountRepository.updateBalanceCAS(account.addBalance(leg.getB()));
                 } else {
                     accountRepository.updateBalance(account.addBalance(leg.getB()));
@@ -62,6 +104,14 @@ public class LostUpdate extends AbstractWorkload {
                 checksum = checksum.add(leg.getB());
             }
 
+            if (settings.isBatchLegs()) {
+                if (settings.isOptimisticLocking()) {
+                    accountRepository.updateBalancesCAS(updatedAccounts);
+                } else {
+                    accountRepository.updateBalances(updatedAccounts);
+                }
+            }
+
             if (checksum.compareTo(BigDecimal.ZERO) != 0) {
                 throw new IllegalStateException(
                         "Sum of account legs must equal 0 (got " + checksum.toPlainString() + ")"
@@ -71,18 +121,16 @@ public class LostUpdate extends AbstractWorkload {
             return null;
         };
 
-        final List<Duration> durations = new ArrayList<>();
-
         TransactionWrapper transactionWrapper = transactionWrapper();
-        transactionWrapper.execute(callback, durations::addAll);
-
-        return durations;
+        transactionWrapper.execute(callback);
     }
 
     @Override
     protected void doBeforeExecutions() {
         this.initialBalance = accountRepository.sumTotalBalance();
-        this.accountSelection.addAll(accountRepository.findTargetAccounts(settings.getSelection(), settings.isRandomSelection()));
+        this.anomalyCount = 0;
+        this.accountSelection.clear();
+        this.accountSelection.addAll(findTargetAccounts());
     }
 
     @Override
@@ -95,6 +143,7 @@ public class LostUpdate extends AbstractWorkload {
         logger.info("Final total balance: %s".formatted(finalBalance));
 
         if (!initialBalance.equals(finalBalance)) {
+            anomalyCount = 1;
             logger.error("%s != %s %s"
                     .formatted(initialBalance, finalBalance, AsciiArt.flipTableRoughly()));
             logger.error("You just lost %s and may want to reconsider your isolation level!! (or use locking)"
@@ -104,4 +153,19 @@ public class LostUpdate extends AbstractWorkload {
             logger.info("To observe anomalies, try read-committed without locking (--isolation rc)");
         }
     }
+
+    @Override
+    public boolean isVerifiable() {
+        return true;
+    }
+
+    @Override
+    public List<String> verifyInvariants() {
+        return verifyTotals(initialBalance, false);
+    }
+
+    @Override
+    public int anomalyCount() {
+        return anomalyCount;
+    }
 }
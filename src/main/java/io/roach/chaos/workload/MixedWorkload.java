@@ -0,0 +1,118 @@
+package io.roach.chaos.workload;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+
+import io.roach.chaos.metrics.Counter;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.Timer;
+import io.roach.chaos.util.RetryBudgetExhaustedException;
+
+/**
+ * Runs a weighted mix of workload types concurrently over the same account table.
+ * Each execution picks one workload type by weight. The metrics of each type are
+ * scoped by its alias, and still roll up into the totals.
+ */
+@Note("Weighted mix of workloads")
+public class MixedWorkload extends AbstractWorkload {
+    private final Map<WorkloadType, AbstractWorkload> workloads = new EnumMap<>(WorkloadType.class);
+
+    private final Map<WorkloadType, Timer> serviceTimers = new EnumMap<>(WorkloadType.class);
+
+    private final Map<WorkloadType, Counter> commitCounters = new EnumMap<>(WorkloadType.class);
+
+    private final Map<WorkloadType, Counter> failCounters = new EnumMap<>(WorkloadType.class);
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    private WorkloadMix mix;
+
+    @PostConstruct
+    public void init() {
+        if (settings.getWorkloadMix() == null) {
+            throw new IllegalStateException("Missing workload mix (--mix)");
+        }
+
+        this.mix = WorkloadMix.parse(settings.getWorkloadMix());
+
+        mix.getWeights().keySet().forEach(type -> {
+            AbstractWorkload workload = (AbstractWorkload) type.createInstance();
+            beanFactory.autowireBean(workload);
+            workload.metrics = metrics.scope(type.alias());
+
+            workloads.put(type, workload);
+
+            // Service time and outcome are recorded by the driver, so these do not roll up
+            serviceTimers.put(type, metrics.timer(Metrics.scopedName(type.alias(), Metrics.SERVICE_TIME)));
+            commitCounters.put(type, metrics.counter(Metrics.scopedName(type.alias(), Metrics.COMMITS)));
+            failCounters.put(type, metrics.counter(Metrics.scopedName(type.alias(), Metrics.FAILS)));
+        });
+    }
+
+    public WorkloadMix getMix() {
+        return mix;
+    }
+
+    @Override
+    public void validateSettings() {
+        final EnumSet<WorkloadType> types = EnumSet.copyOf(mix.getWeights().keySet());
+
+        if (types.contains(WorkloadType.LOST_UPDATE)
+                && (types.contains(WorkloadType.NON_REPEATABLE_READ) || types.contains(WorkloadType.WRITE_SKEW))) {
+            logger.warn("P4 total balance check is not reliable when mixed with P2 or A5B, which are not zero-sum");
+        }
+        if (types.contains(WorkloadType.READ_SKEW) && types.size() > 1) {
+            logger.warn("A5A tuple sum check may report discrepancies caused by other workloads writing to the same accounts");
+        }
+
+        workloads.values().forEach(Workload::validateSettings);
+    }
+
+    @Override
+    protected void doBeforeExecutions() {
+        workloads.values().forEach(AbstractWorkload::doBeforeExecutions);
+    }
+
+    @Override
+    public void oneExecution() {
+        final WorkloadType type = mix.next();
+        final long startTime = System.nanoTime();
+
+        try {
+            workloads.get(type).oneExecution();
+            commitCounters.get(type).increment();
+        } catch (RetryBudgetExhaustedException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            failCounters.get(type).increment();
+            throw e;
+        } finally {
+            serviceTimers.get(type).recordNanos(System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void afterAllExecutions() {
+        workloads.forEach((type, workload) -> {
+            logger.info("Workload %s (%s)".formatted(type, type.alias()));
+            workload.afterAllExecutions();
+        });
+    }
+
+    @Override
+    public int anomalyCount() {
+        return workloads.values().stream().mapToInt(Workload::anomalyCount).sum();
+    }
+
+    @Override
+    public int observedAnomalies() {
+        return workloads.values().stream().mapToInt(Workload::observedAnomalies).sum();
+    }
+}
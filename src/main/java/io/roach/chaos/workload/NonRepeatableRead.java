@@ -1,7 +1,6 @@
 package io.roach.chaos.workload;
 
 import java.math.BigDecimal;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -17,6 +16,8 @@ import java.util.stream.IntStream;
 
 import org.springframework.transaction.support.TransactionCallback;
 
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.Timer;
 import io.roach.chaos.model.Account;
 import io.roach.chaos.util.AsciiArt;
 import io.roach.chaos.util.TransactionWrapper;
@@ -33,23 +34,39 @@ public class NonRepeatableRead extends AbstractWorkload {
 
     private final AtomicInteger writes = new AtomicInteger();
 
+    private VersionCache versionCache;
+
+    private List<List<Account.Id>> multiKeyIds = List.of();
+
+    private Timer readStatementTimer;
+
+    private Timer readTransactionTimer;
+
     @Override
     protected void doBeforeExecutions() {
-        this.accountSelection = accountRepository.findTargetAccounts(settings.getSelection(), settings.isRandomSelection());
+        this.accountSelection = findTargetAccounts();
+        this.anomalies.clear();
+        this.reads.set(0);
+        this.writes.set(0);
+        this.versionCache = new VersionCache(accountRepository, metrics);
+        this.multiKeyIds = partition(accountSelection.stream().map(Account::getId).toList());
+        this.readStatementTimer = metrics.timer(Metrics.READ_STATEMENT_TIME);
+        this.readTransactionTimer = metrics.timer(Metrics.READ_TRANSACTION_TIME);
     }
 
     @Override
-    public List<Duration> oneExecution() {
+    public void oneExecution() {
         // Let's roll with 10% writes
         if (ThreadLocalRandom.current().nextDouble(1.00) < settings.getReadWriteRatio()) {
             reads.incrementAndGet();
-            return readRows();
+            readRows();
+            return;
         }
         writes.incrementAndGet();
-        return writeRows();
+        writeRows();
     }
 
-    private List<Duration> readRows() {
+    private void readRows() {
         final Map<Account.Id, List<BigDecimal>> balanceObservations = new LinkedHashMap<>();
 
         // Within the same transaction, all reads must return the same value otherwise its a P2 anomaly
@@ -57,11 +74,28 @@ public class NonRepeatableRead extends AbstractWorkload {
             // Clear previous observation on retries
             balanceObservations.clear();
 
+            if (settings.isMultiKeyReads()) {
+                // Each repetition reads the whole selection, observations are still kept per key
+                IntStream.rangeClosed(1, repeatedReads)
+                        .forEach(value -> multiKeyIds.forEach(ids -> {
+                            final long startTime = System.nanoTime();
+                            List<Account> accounts = accountRepository.findAccountsByIds(ids, settings.getLockType());
+                            readStatementTimer.recordNanos(System.nanoTime() - startTime);
+
+                            accounts.forEach(account -> balanceObservations.computeIfAbsent(account.getId(),
+                                            x -> new ArrayList<>())
+                                    .add(account.getBalance()));
+                        }));
+                return null;
+            }
+
             accountSelection.forEach(a -> {
                 // Add write mutex scoped by account id
                 IntStream.rangeClosed(1, repeatedReads)
                         .forEach(value -> {
+                            final long startTime = System.nanoTime();
                             Account account = accountRepository.findAccountById(a.getId(), settings.getLockType());
+                            readStatementTimer.recordNanos(System.nanoTime() - startTime);
 
                             balanceObservations.computeIfAbsent(a.getId(),
                                             x -> new ArrayList<>())
@@ -71,10 +105,12 @@ public class NonRepeatableRead extends AbstractWorkload {
             return null;
         };
 
-        final List<Duration> durations = new ArrayList<>();
+        final long startTime = System.nanoTime();
 
         TransactionWrapper transactionWrapper = transactionWrapper();
-        transactionWrapper.execute(callback, durations::addAll);
+        transactionWrapper.execute(callback);
+
+        readTransactionTimer.recordNanos(System.nanoTime() - startTime);
 
         // Sum up for reporting
         balanceObservations.forEach((id, balances) -> {
@@ -84,15 +120,13 @@ public class NonRepeatableRead extends AbstractWorkload {
                         .addAll(distinctValues);
             }
         });
-
-        return durations;
     }
 
-    private List<Duration> writeRows() {
+    private void writeRows() {
         TransactionCallback<Void> callback = status -> {
             accountSelection.forEach(a -> {
                 if (settings.isOptimisticLocking()) {
-                    accountRepository.updateBalanceCAS(a.addBalance(BigDecimal.ONE));
+                    versionCache.addBalanceCAS(a.getId(), BigDecimal.ONE);
                 } else {
                     accountRepository.updateBalance(a.addBalance(BigDecimal.ONE));
                 }
@@ -100,12 +134,8 @@ public class NonRepeatableRead extends AbstractWorkload {
             return null;
         };
 
-        final List<Duration> durations = new ArrayList<>();
-
         TransactionWrapper transactionWrapper = transactionWrapper();
-        transactionWrapper.execute(callback, durations::addAll);
-
-        return durations;
+        transactionWrapper.execute(callback);
     }
 
     @Override
@@ -128,5 +158,14 @@ public class NonRepeatableRead extends AbstractWorkload {
                     "To avoid anomalies, try read-committed with locking or repeatable-read or higher isolation (--locking for_share)");
         }
     }
-}
 
+    @Override
+    public int anomalyCount() {
+        return anomalies.size();
+    }
+
+    @Override
+    public int observedAnomalies() {
+        return anomalies.size();
+    }
+}
@@ -1,7 +1,6 @@
 package io.roach.chaos.workload;
 
 import java.math.BigDecimal;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -17,6 +16,8 @@ import java.util.stream.IntStream;
 
 import org.springframework.transaction.support.TransactionCallback;
 
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.Timer;
 import io.roach.chaos.model.Account;
 import io.roach.chaos.util.AsciiArt;
 import io.roach.chaos.util.RandomData;
@@ -36,29 +37,44 @@ public class PhantomRead extends AbstractWorkload {
 
     private final AtomicInteger deletes = new AtomicInteger();
 
+    private List<List<Long>> multiKeyIds = List.of();
+
+    private Timer readStatementTimer;
+
+    private Timer readTransactionTimer;
+
     @Override
     protected void doBeforeExecutions() {
-        this.accountSelection = accountRepository.findTargetAccounts(settings.getSelection(), settings.isRandomSelection());
+        this.accountSelection = findTargetAccounts();
+        this.anomalies.clear();
+        this.selects.set(0);
+        this.inserts.set(0);
+        this.deletes.set(0);
+        this.multiKeyIds = partition(accountSelection.stream().map(a -> a.getId().getId()).distinct().toList());
+        this.readStatementTimer = metrics.timer(Metrics.READ_STATEMENT_TIME);
+        this.readTransactionTimer = metrics.timer(Metrics.READ_TRANSACTION_TIME);
     }
 
     @Override
-    public List<Duration> oneExecution() {
+    public void oneExecution() {
         // Let's roll with 10% writes
         if (ThreadLocalRandom.current().nextDouble(1.00) < settings.getReadWriteRatio()) {
             selects.incrementAndGet();
-            return selectRows();
+            selectRows();
+            return;
         }
 
         if (ThreadLocalRandom.current().nextDouble(1.00) < .50) {
             inserts.incrementAndGet();
-            return createRows();
+            createRows();
+            return;
         }
 
         deletes.incrementAndGet();
-        return deleteRows();
+        deleteRows();
     }
 
-    private List<Duration> selectRows() {
+    private void selectRows() {
         final Map<Long, List<Integer>> observations = new LinkedHashMap<>();
 
         // Within the same transaction, all reads must return the same value otherwise its a P2 anomaly
@@ -66,11 +82,31 @@ public class PhantomRead extends AbstractWorkload {
             // Clear previous observations on retries
             observations.clear();
 
+            if (settings.isMultiKeyReads()) {
+                // Each repetition reads the whole selection, rows are still counted per key
+                IntStream.rangeClosed(1, repeatedReads)
+                        .forEach(value -> multiKeyIds.forEach(ids -> {
+                            final long startTime = System.nanoTime();
+                            List<Account> accounts = accountRepository.findAccountsByIdIn(ids, settings.getLockType());
+                            readStatementTimer.recordNanos(System.nanoTime() - startTime);
+
+                            Map<Long, Integer> rowCounts = new HashMap<>();
+                            ids.forEach(id -> rowCounts.put(id, 0));
+                            accounts.forEach(account -> rowCounts.merge(account.getId().getId(), 1, Integer::sum));
+
+                            rowCounts.forEach((id, rows) -> observations.computeIfAbsent(id, x -> new ArrayList<>())
+                                    .add(rows)); // Must match predicate
+                        }));
+                return null;
+            }
+
             accountSelection.forEach(a -> {
                 IntStream.rangeClosed(1, repeatedReads)
                         .forEach(value -> {
+                            final long startTime = System.nanoTime();
                             List<Account> accounts =
                                     accountRepository.findAccountsById(a.getId().getId(), settings.getLockType());
+                            readStatementTimer.recordNanos(System.nanoTime() - startTime);
 
                             observations.computeIfAbsent(a.getId().getId(), x -> new ArrayList<>())
                                     .add(accounts.size()); // Must match predicate
@@ -79,10 +115,12 @@ public class PhantomRead extends AbstractWorkload {
             return null;
         };
 
-        final List<Duration> durations = new ArrayList<>();
+        final long startTime = System.nanoTime();
 
         TransactionWrapper transactionWrapper = transactionWrapper();
-        transactionWrapper.execute(callback, durations::addAll);
+        transactionWrapper.execute(callback);
+
+        readTransactionTimer.recordNanos(System.nanoTime() - startTime);
 
         // Sum up for reporting
         observations.forEach((id, balances) -> {
@@ -92,11 +130,9 @@ public class PhantomRead extends AbstractWorkload {
                         .addAll(distinctValues);
             }
         });
-
-        return durations;
     }
 
-    private List<Duration> createRows() {
+    private void createRows() {
         TransactionCallback<Void> callback = status -> {
             accountSelection.forEach(a -> {
                 Account extra = new Account();
@@ -109,14 +145,11 @@ public class PhantomRead extends AbstractWorkload {
             return null;
         };
 
-        final List<Duration> durations = new ArrayList<>();
         TransactionWrapper transactionWrapper = transactionWrapper();
-        transactionWrapper.execute(callback, durations::addAll);
-
-        return durations;
+        transactionWrapper.execute(callback);
     }
 
-    private List<Duration> deleteRows() {
+    private void deleteRows() {
         TransactionCallback<Void> callback = status -> {
             accountSelection.forEach(a -> {
                 accountRepository.deleteAccount(a.getId());
@@ -124,11 +157,8 @@ public class PhantomRead extends AbstractWorkload {
             return null;
         };
 
-        final List<Duration> durations = new ArrayList<>();
         TransactionWrapper transactionWrapper = transactionWrapper();
-        transactionWrapper.execute(callback, durations::addAll);
-
-        return durations;
+        transactionWrapper.execute(callback);
     }
 
     @Override
@@ -152,5 +182,14 @@ public class PhantomRead extends AbstractWorkload {
                     "To avoid anomalies, try repeatable-read or higher isolation (--isolation rr)");
         }
     }
-}
 
+    @Override
+    public int anomalyCount() {
+        return anomalies.size();
+    }
+
+    @Override
+    public int observedAnomalies() {
+        return anomalies.size();
+    }
+}
@@ -2,7 +2,6 @@ package io.roach.chaos.workload;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -16,6 +15,7 @@ import org.springframework.transaction.support.TransactionCallback;
 
 import io.roach.chaos.model.Account;
 import io.roach.chaos.model.AccountType;
+import io.roach.chaos.model.ExecutionMode;
 import io.roach.chaos.util.AsciiArt;
 import io.roach.chaos.util.TransactionWrapper;
 import io.roach.chaos.util.Tuple;
@@ -30,14 +30,16 @@ public class ReadSkew extends AbstractWorkload {
 
     private final BlockingQueue<Tuple<Account.Id, Account.Id>> queue = new LinkedBlockingQueue<>(100);
 
-    private final BigDecimal tupleSum = new BigDecimal("1000.00");
+    private final BigDecimal tupleSum = INITIAL_BALANCE.add(INITIAL_BALANCE);
+
+    private int anomalyCount;
+
+    private BigDecimal initialBalance;
 
     @Override
-    public List<Duration> oneExecution() {
+    public void oneExecution() {
         final ThreadLocalRandom random = ThreadLocalRandom.current();
 
-        final List<Duration> durations = new ArrayList<>();
-
         TransactionCallback<Void> callback = status -> {
             // Drain queue and read each account in tuple separately (rather than using aggregation)
             Tuple<Account.Id, Account.Id> tuple = queue.poll();
@@ -57,17 +59,10 @@ public class ReadSkew extends AbstractWorkload {
 
             Account account = selectRandom(accountSelection);
 
-            BigDecimal totalBalance = accountRepository.totalAccountBalance(account.getId().getId());
-
             BigDecimal amount = BigDecimal.valueOf(random.nextDouble(10, 150))
                     .setScale(2, RoundingMode.HALF_UP);
 
-            if (totalBalance.subtract(amount).compareTo(BigDecimal.ZERO) >= 0) {
-                accountRepository.addBalance(account.getId().getId(), AccountType.credit,
-                        amount.negate());
-                accountRepository.addBalance(account.getId().getId(), AccountType.checking,
-                        amount);
-
+            if (transfer(account.getId().getId(), amount)) {
                 try {
                     queue.put(Tuple.of(
                             new Account.Id(account.getId().getId(), AccountType.credit),
@@ -83,16 +78,33 @@ public class ReadSkew extends AbstractWorkload {
         };
 
         TransactionWrapper transactionWrapper = transactionWrapper();
-        transactionWrapper.execute(callback, durations::addAll);
+        transactionWrapper.execute(callback);
+    }
 
-        return durations;
+    private boolean transfer(Long id, BigDecimal amount) {
+        if (settings.getExecutionMode() == ExecutionMode.PROCEDURE) {
+            // The tuple reads above stay client-side since they are what observes the anomaly
+            return accountRepository.callTransferTuple(id, amount);
+        }
+
+        BigDecimal totalBalance = accountRepository.totalAccountBalance(id);
+
+        if (totalBalance.subtract(amount).compareTo(BigDecimal.ZERO) >= 0) {
+            accountRepository.addBalance(id, AccountType.credit, amount.negate());
+            accountRepository.addBalance(id, AccountType.checking, amount);
+            return true;
+        }
+
+        return false;
     }
 
     @Override
     protected void doBeforeExecutions() {
-        this.accountSelection.addAll(
-                accountRepository.findTargetAccounts(settings.getSelection(), settings.isRandomSelection()));
+        this.accountSelection.clear();
+        this.accountSelection.addAll(findTargetAccounts());
         this.discrepancies.clear();
+        this.queue.clear();
+        this.initialBalance = settings.isOnlineVerify() ? accountRepository.sumTotalBalance() : null;
     }
 
     @Override
@@ -109,6 +121,8 @@ public class ReadSkew extends AbstractWorkload {
             total.set(total.get().add(pair.getSecond()));
         });
 
+        anomalyCount = discrepancies.size() + negativeAccounts.get();
+
         if (discrepancies.isEmpty()) {
             logger.info("No account balance discrepancies %s"
                     .formatted(AsciiArt.happy()));
@@ -138,4 +152,25 @@ public class ReadSkew extends AbstractWorkload {
             }
         }
     }
+
+    @Override
+    public boolean isVerifiable() {
+        return true;
+    }
+
+    @Override
+    public List<String> verifyInvariants() {
+        // Transfers stay within a tuple so the total is constant
+        return verifyTotals(initialBalance, true);
+    }
+
+    @Override
+    public int anomalyCount() {
+        return anomalyCount;
+    }
+
+    @Override
+    public int observedAnomalies() {
+        return discrepancies.size();
+    }
 }
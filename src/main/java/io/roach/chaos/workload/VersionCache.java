@@ -0,0 +1,103 @@
+package io.roach.chaos.workload;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.roach.chaos.metrics.Counter;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.model.Account;
+import io.roach.chaos.model.LockType;
+import io.roach.chaos.repository.AccountRepository;
+import io.roach.chaos.util.AttemptSynchronization;
+
+/**
+ * Last known account versions for optimistic writes. Versions are refreshed from
+ * the result of each write, so a write only needs a prior read on a cache miss or
+ * after a concurrent write made the version stale. A stale version fails the write
+ * and evicts the entry, and the retry reads the current version.
+ * <p>
+ * Versions written in a transaction are staged and only published once it commits,
+ * so a rollback leaves the cache with the last committed versions. A rollback to a
+ * savepoint discards the versions staged by the failed attempt.
+ */
+public class VersionCache {
+    private final ConcurrentMap<Account.Id, Integer> versions = new ConcurrentHashMap<>();
+
+    private final AccountRepository accountRepository;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter stale;
+
+    public VersionCache(AccountRepository accountRepository, Metrics metrics) {
+        this.accountRepository = accountRepository;
+        this.hits = metrics.counter(Metrics.VERSION_CACHE_HITS);
+        this.misses = metrics.counter(Metrics.VERSION_CACHE_MISSES);
+        this.stale = metrics.counter(Metrics.STALE_VERSIONS);
+    }
+
+    public Account addBalanceCAS(Account.Id id, BigDecimal amount) {
+        final Map<Account.Id, Integer> staged = stagedVersions();
+
+        Integer version = staged.containsKey(id) ? staged.get(id) : versions.get(id);
+        if (version != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            version = accountRepository.findAccountById(id, LockType.NONE).getVersion();
+        }
+
+        try {
+            Account account = accountRepository.addBalanceCASReturning(id, amount, version);
+            staged.put(id, account.getVersion());
+            return account;
+        } catch (OptimisticLockingFailureException e) {
+            stale.increment();
+            staged.remove(id);
+            versions.remove(id);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the versions written by the current transaction, published to the cache after commit
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Account.Id, Integer> stagedVersions() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // No transaction to wait for, write through
+            return versions;
+        }
+
+        Map<Account.Id, Integer> staged = (Map<Account.Id, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (staged == null) {
+            final Map<Account.Id, Integer> pending = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new AttemptSynchronization() {
+                @Override
+                public void afterAttemptRollback() {
+                    // The writes of the attempt are undone, the next one starts from the committed versions
+                    pending.clear();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(VersionCache.this);
+                    if (status == STATUS_COMMITTED) {
+                        versions.putAll(pending);
+                    }
+                }
+            });
+            staged = pending;
+        }
+        return staged;
+    }
+}
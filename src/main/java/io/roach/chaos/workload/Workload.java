@@ -1,6 +1,5 @@
 package io.roach.chaos.workload;
 
-import java.time.Duration;
 import java.util.List;
 
 public interface Workload {
@@ -14,9 +13,48 @@ public interface Workload {
     default void beforeAllExecutions() {
     }
 
-    List<Duration> oneExecution();
+    void oneExecution();
 
     default void afterAllExecutions() {
 
     }
+
+    /**
+     * Restore the dataset and clear the observations of a previous run, without
+     * recreating the schema.
+     */
+    default void resetExecutions() {
+    }
+
+    /**
+     * @return number of anomalies found by the last consistency check
+     */
+    default int anomalyCount() {
+        return 0;
+    }
+
+    /**
+     * @return number of anomalies observed client-side during the executions so far,
+     * as opposed to by the consistency check
+     */
+    default int observedAnomalies() {
+        return 0;
+    }
+
+    /**
+     * @return true if the workload has invariants that can be checked while it is running
+     */
+    default boolean isVerifiable() {
+        return false;
+    }
+
+    /**
+     * Check the invariants of the workload against a consistent snapshot, concurrently
+     * with the executions.
+     *
+     * @return a description of each violated invariant, empty if none
+     */
+    default List<String> verifyInvariants() {
+        return List.of();
+    }
 }
@@ -0,0 +1,92 @@
+package io.roach.chaos.workload;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted selection of workload types, parsed from an expression like
+ * {@code P4:60,A5A:30,P2:10} using workload aliases or names.
+ */
+public class WorkloadMix {
+    public static WorkloadMix parse(String expression) {
+        Map<WorkloadType, Integer> weights = new EnumMap<>(WorkloadType.class);
+
+        for (String part : expression.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected type:weight, ex P4:60 (got " + part + ")");
+            }
+
+            String name = pair[0].trim();
+            WorkloadType type = WorkloadType.of(name);
+            if (type == WorkloadType.MIXED) {
+                throw new IllegalArgumentException("Can't nest a mix in a mix");
+            }
+            if (type == WorkloadType.PHANTOM_READ) {
+                throw new IllegalArgumentException(
+                        "P3 can't be mixed since it deletes the accounts other workloads read and write");
+            }
+
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Weight must be > 0 for " + name);
+            }
+
+            if (weights.put(type, weight) != null) {
+                throw new IllegalArgumentException("Duplicate workload type " + name);
+            }
+        }
+
+        return new WorkloadMix(weights);
+    }
+
+    private final Map<WorkloadType, Integer> weights;
+
+    private final WorkloadType[] buckets;
+
+    private final int[] cumulativeWeights;
+
+    private WorkloadMix(Map<WorkloadType, Integer> weights) {
+        this.weights = Collections.unmodifiableMap(weights);
+        this.buckets = weights.keySet().toArray(new WorkloadType[0]);
+        this.cumulativeWeights = new int[buckets.length];
+
+        int sum = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            sum += weights.get(buckets[i]);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    public Map<WorkloadType, Integer> getWeights() {
+        return weights;
+    }
+
+    public int getTotalWeight() {
+        return cumulativeWeights[cumulativeWeights.length - 1];
+    }
+
+    public WorkloadType next() {
+        int r = ThreadLocalRandom.current().nextInt(getTotalWeight());
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i]) {
+                return buckets[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        weights.forEach((type, weight) -> {
+            if (!sb.isEmpty()) {
+                sb.append(",");
+            }
+            sb.append(type.alias()).append(":").append(weight);
+        });
+        return sb.toString();
+    }
+}
@@ -1,5 +1,7 @@
 package io.roach.chaos.workload;
 
+import java.util.EnumSet;
+
 public enum WorkloadType {
     NON_REPEATABLE_READ {
         @Override
@@ -55,8 +57,27 @@ public enum WorkloadType {
         public Workload createInstance() {
             return new WriteSkew();
         }
+    },
+    MIXED {
+        @Override
+        public String alias() {
+            return "MIX";
+        }
+
+        @Override
+        public Workload createInstance() {
+            return new MixedWorkload();
+        }
     };
 
+    public static WorkloadType of(String nameOrAlias) {
+        return EnumSet.allOf(WorkloadType.class)
+                .stream()
+                .filter(wt -> wt.alias().equalsIgnoreCase(nameOrAlias) || wt.name().equalsIgnoreCase(nameOrAlias))
+                .findFirst()
+                .orElseGet(() -> WorkloadType.valueOf(nameOrAlias));
+    }
+
     public abstract String alias();
 
     public abstract Workload createInstance();
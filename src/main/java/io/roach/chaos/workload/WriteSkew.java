@@ -2,7 +2,6 @@ package io.roach.chaos.workload;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
@@ -28,12 +27,14 @@ public class WriteSkew extends AbstractWorkload {
 
     private final AtomicInteger reject = new AtomicInteger();
 
+    private int anomalyCount;
+
+    private VersionCache versionCache;
+
     @Override
-    public List<Duration> oneExecution() {
+    public void oneExecution() {
         final ThreadLocalRandom random = ThreadLocalRandom.current();
 
-        final List<Duration> durations = new ArrayList<>();
-
         TransactionCallback<Void> callback = status -> {
             Account target = selectRandom(accountSelection);
 
@@ -48,11 +49,11 @@ public class WriteSkew extends AbstractWorkload {
                 // Skew point where different threads may pick different paths
                 // (allowed in snapshot and RC but not in 1SR)
                 if (settings.isOptimisticLocking()) {
-                    accountRepository.addBalanceCAS(
-                            target.getId().getId(),
-                            random.nextBoolean() ? AccountType.credit : AccountType.checking,
-                            amount.negate(),
-                            target.getVersion());
+                    // Either account of the tuple, at its last known version
+                    versionCache.addBalanceCAS(
+                            new Account.Id(target.getId().getId(),
+                                    random.nextBoolean() ? AccountType.credit : AccountType.checking),
+                            amount.negate());
                 } else {
                     accountRepository.addBalance(
                             target.getId().getId(),
@@ -67,9 +68,7 @@ public class WriteSkew extends AbstractWorkload {
         };
 
         TransactionWrapper transactionWrapper = transactionWrapper();
-        transactionWrapper.execute(callback, durations::addAll);
-
-        return durations;
+        transactionWrapper.execute(callback);
     }
 
     @Override
@@ -81,10 +80,11 @@ public class WriteSkew extends AbstractWorkload {
 
     @Override
     protected void doBeforeExecutions() {
-        this.accountSelection.addAll(
-                accountRepository.findTargetAccounts(settings.getSelection(), settings.isRandomSelection()));
+        this.accountSelection.clear();
+        this.accountSelection.addAll(findTargetAccounts());
         this.accept.set(0);
         this.reject.set(0);
+        this.versionCache = new VersionCache(accountRepository, metrics);
     }
 
     @Override
@@ -104,6 +104,8 @@ public class WriteSkew extends AbstractWorkload {
             total.set(total.get().add(pair.getSecond()));
         });
 
+        anomalyCount = negativeAccounts.get();
+
         if (negativeAccounts.get() > 0) {
             logger.error("You have %d account tuples with a negative total balance! %s"
                     .formatted(negativeAccounts.get(), AsciiArt.flipTableRoughly()));
@@ -116,4 +118,19 @@ public class WriteSkew extends AbstractWorkload {
                     "To observe anomalies, try read-committed without locking and account narrowing (--isolation rc --selection 20)");
         }
     }
+
+    @Override
+    public boolean isVerifiable() {
+        return true;
+    }
+
+    @Override
+    public List<String> verifyInvariants() {
+        return verifyTotals(null, true);
+    }
+
+    @Override
+    public int anomalyCount() {
+        return anomalyCount;
+    }
 }
@@ -0,0 +1,41 @@
+-- Server-side transfers for the stored procedure execution mode, separated by '/'
+
+CREATE OR REPLACE FUNCTION chaos_transfer_legs(ids INT[], types STRING[], amounts DECIMAL[], lock_rows BOOL)
+    RETURNS INT
+    LANGUAGE PLpgSQL AS
+$$
+DECLARE
+    i INT := 1;
+    current_balance DECIMAL;
+BEGIN
+    WHILE i <= array_length(ids, 1) LOOP
+        IF lock_rows THEN
+            SELECT balance INTO current_balance FROM account WHERE id = ids[i] AND type = types[i] FOR UPDATE;
+        ELSE
+            SELECT balance INTO current_balance FROM account WHERE id = ids[i] AND type = types[i];
+        END IF;
+        UPDATE account SET balance = current_balance + amounts[i] WHERE id = ids[i] AND type = types[i];
+        i := i + 1;
+    END LOOP;
+    RETURN array_length(ids, 1);
+END;
+$$
+/
+
+CREATE OR REPLACE FUNCTION chaos_transfer_tuple(account_id INT, amount DECIMAL)
+    RETURNS BOOL
+    LANGUAGE PLpgSQL AS
+$$
+DECLARE
+    total_balance DECIMAL;
+BEGIN
+    SELECT sum(balance) INTO total_balance FROM account WHERE id = account_id;
+    IF total_balance - amount < 0 THEN
+        RETURN false;
+    END IF;
+    UPDATE account SET balance = balance - amount WHERE id = account_id AND type = 'credit';
+    UPDATE account SET balance = balance + amount WHERE id = account_id AND type = 'checking';
+    RETURN true;
+END;
+$$
+/
@@ -0,0 +1,45 @@
+-- Server-side transfers for the stored procedure execution mode, separated by '/'
+
+DROP PROCEDURE IF EXISTS chaos_transfer_legs
+/
+
+CREATE PROCEDURE chaos_transfer_legs(IN legs JSON, IN lock_rows BOOLEAN)
+BEGIN
+    DECLARE i INT DEFAULT 0;
+    DECLARE leg_id INT;
+    DECLARE leg_type VARCHAR(32);
+    DECLARE leg_amount DECIMAL(19, 2);
+    DECLARE current_balance DECIMAL(19, 2);
+
+    WHILE i < JSON_LENGTH(legs) DO
+        SET leg_id = JSON_EXTRACT(legs, CONCAT('$[', i, '].id'));
+        SET leg_type = JSON_UNQUOTE(JSON_EXTRACT(legs, CONCAT('$[', i, '].type')));
+        SET leg_amount = JSON_EXTRACT(legs, CONCAT('$[', i, '].amount'));
+        IF lock_rows THEN
+            SELECT balance INTO current_balance FROM account WHERE id = leg_id AND type = leg_type FOR UPDATE;
+        ELSE
+            SELECT balance INTO current_balance FROM account WHERE id = leg_id AND type = leg_type;
+        END IF;
+        UPDATE account SET balance = current_balance + leg_amount WHERE id = leg_id AND type = leg_type;
+        SET i = i + 1;
+    END WHILE;
+END
+/
+
+DROP PROCEDURE IF EXISTS chaos_transfer_tuple
+/
+
+CREATE PROCEDURE chaos_transfer_tuple(IN account_id INT, IN amount DECIMAL(19, 2), OUT transferred BOOLEAN)
+BEGIN
+    DECLARE total_balance DECIMAL(19, 2);
+
+    SELECT sum(balance) INTO total_balance FROM account WHERE id = account_id;
+    IF total_balance - amount < 0 THEN
+        SET transferred = FALSE;
+    ELSE
+        UPDATE account SET balance = balance - amount WHERE id = account_id AND type = 'credit';
+        UPDATE account SET balance = balance + amount WHERE id = account_id AND type = 'checking';
+        SET transferred = TRUE;
+    END IF;
+END
+/
@@ -0,0 +1,34 @@
+-- Server-side transfers for the stored procedure execution mode, separated by '/'
+
+CREATE OR REPLACE PROCEDURE chaos_transfer_legs(legs IN VARCHAR2, lock_rows IN NUMBER) AS
+    current_balance NUMBER(19, 2);
+BEGIN
+    FOR leg IN (SELECT *
+                FROM JSON_TABLE(legs, '$[*]' COLUMNS (
+                    id NUMBER PATH '$.id',
+                    type VARCHAR2(32) PATH '$.type',
+                    amount NUMBER(19, 2) PATH '$.amount')))
+        LOOP
+            IF lock_rows = 1 THEN
+                SELECT balance INTO current_balance FROM account WHERE id = leg.id AND type = leg.type FOR UPDATE;
+            ELSE
+                SELECT balance INTO current_balance FROM account WHERE id = leg.id AND type = leg.type;
+            END IF;
+            UPDATE account SET balance = current_balance + leg.amount WHERE id = leg.id AND type = leg.type;
+        END LOOP;
+END;
+/
+
+CREATE OR REPLACE PROCEDURE chaos_transfer_tuple(account_id IN NUMBER, amount IN NUMBER, transferred OUT NUMBER) AS
+    total_balance NUMBER(19, 2);
+BEGIN
+    SELECT sum(balance) INTO total_balance FROM account WHERE id = account_id;
+    IF total_balance - amount < 0 THEN
+        transferred := 0;
+    ELSE
+        UPDATE account SET balance = balance - amount WHERE id = account_id AND type = 'credit';
+        UPDATE account SET balance = balance + amount WHERE id = account_id AND type = 'checking';
+        transferred := 1;
+    END IF;
+END;
+/
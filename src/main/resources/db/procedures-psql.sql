@@ -0,0 +1,38 @@
+-- Server-side transfers for the stored procedure execution mode, separated by '/'
+
+CREATE OR REPLACE FUNCTION chaos_transfer_legs(ids INT[], types VARCHAR[], amounts NUMERIC[], lock_rows BOOLEAN)
+    RETURNS INT AS
+$$
+DECLARE
+    current_balance NUMERIC;
+BEGIN
+    FOR i IN 1..array_length(ids, 1)
+        LOOP
+            IF lock_rows THEN
+                SELECT balance INTO current_balance FROM account WHERE id = ids[i] AND type = types[i] FOR UPDATE;
+            ELSE
+                SELECT balance INTO current_balance FROM account WHERE id = ids[i] AND type = types[i];
+            END IF;
+            UPDATE account SET balance = current_balance + amounts[i] WHERE id = ids[i] AND type = types[i];
+        END LOOP;
+    RETURN array_length(ids, 1);
+END;
+$$ LANGUAGE plpgsql
+/
+
+CREATE OR REPLACE FUNCTION chaos_transfer_tuple(account_id INT, amount NUMERIC)
+    RETURNS BOOLEAN AS
+$$
+DECLARE
+    total_balance NUMERIC;
+BEGIN
+    SELECT sum(balance) INTO total_balance FROM account WHERE id = account_id;
+    IF total_balance - amount < 0 THEN
+        RETURN FALSE;
+    END IF;
+    UPDATE account SET balance = balance - amount WHERE id = account_id AND type = 'credit';
+    UPDATE account SET balance = balance + amount WHERE id = account_id AND type = 'checking';
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql
+/
@@ -0,0 +1,95 @@
+package io.roach.chaos;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.roach.chaos.ThreadSweep.Step;
+
+public class ThreadSweepTest {
+    @Test
+    public void givenMultiplicativeStep_whenParsing_thenDoubleUpToEnd() {
+        Assertions.assertEquals(List.of(4, 8, 16, 32, 64, 128, 256), ThreadSweep.parse("4:256:x2").getSteps());
+        Assertions.assertEquals(List.of(4, 8, 16, 32, 64, 128, 256), ThreadSweep.parse("4:256:*2").getSteps());
+    }
+
+    @Test
+    public void givenAdditiveStep_whenParsing_thenAddUpToEnd() {
+        Assertions.assertEquals(List.of(8, 16, 24, 32, 40, 48, 56, 64), ThreadSweep.parse("8:64:+8").getSteps());
+    }
+
+    @Test
+    public void givenEndNotOnStep_whenParsing_thenEndIsIncludedAsLastStep() {
+        Assertions.assertEquals(List.of(4, 12, 36, 100), ThreadSweep.parse("4:100:x3").getSteps());
+        Assertions.assertEquals(List.of(1, 11, 21, 25), ThreadSweep.parse("1:25:+10").getSteps());
+    }
+
+    @Test
+    public void givenEqualStartAndEnd_whenParsing_thenSingleStep() {
+        Assertions.assertEquals(List.of(16), ThreadSweep.parse("16:16:x2").getSteps());
+    }
+
+    @Test
+    public void givenLargeEndAndFactor_whenParsing_thenNoOverflow() {
+        List<Integer> steps = ThreadSweep.parse("1073741824:2147483647:x1000").getSteps();
+        Assertions.assertEquals(List.of(1073741824, Integer.MAX_VALUE), steps);
+
+        steps = ThreadSweep.parse("2147483000:2147483647:+2147483647").getSteps();
+        Assertions.assertEquals(List.of(2147483000, Integer.MAX_VALUE), steps);
+    }
+
+    @Test
+    public void givenBadExpressions_whenParsing_thenReject() {
+        for (String expression : List.of("4:256", "0:8:x2", "8:4:x2", "4:8:x1", "4:8:+0", "4:8:-2", "a:8:x2")) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ThreadSweep.parse(expression),
+                    expression);
+        }
+    }
+
+    @Test
+    public void givenLinearThenFlatThroughput_whenFindingSaturation_thenReturnLastScalingStep() {
+        List<Step> steps = List.of(
+                new Step(4, 400, 0, 10),
+                new Step(8, 800, 0, 10),
+                new Step(16, 1550, 0, 11),
+                new Step(32, 1600, 0.1, 20),
+                new Step(64, 1500, 0.3, 45));
+        Assertions.assertEquals(2, ThreadSweep.saturationIndex(steps));
+        Assertions.assertEquals(3, ThreadSweep.peakIndex(steps));
+    }
+
+    @Test
+    public void givenThroughputScalingOverAllSteps_whenFindingSaturation_thenNone() {
+        List<Step> steps = List.of(
+                new Step(4, 400, 0, 10),
+                new Step(8, 700, 0, 10),
+                new Step(16, 1200, 0, 11));
+        Assertions.assertEquals(-1, ThreadSweep.saturationIndex(steps));
+        Assertions.assertEquals(2, ThreadSweep.peakIndex(steps));
+    }
+
+    @Test
+    public void givenDroppingThroughput_whenFindingSaturation_thenFirstStep() {
+        List<Step> steps = List.of(
+                new Step(4, 400, 0, 10),
+                new Step(8, 300, 0.5, 30));
+        Assertions.assertEquals(0, ThreadSweep.saturationIndex(steps));
+        Assertions.assertEquals(0, ThreadSweep.peakIndex(steps));
+    }
+
+    @Test
+    public void givenNoThroughputAtFirstStep_whenFindingSaturation_thenSkipIt() {
+        List<Step> steps = List.of(
+                new Step(4, 0, 0, 0),
+                new Step(8, 800, 0, 10),
+                new Step(16, 1600, 0, 10));
+        Assertions.assertEquals(-1, ThreadSweep.saturationIndex(steps));
+    }
+
+    @Test
+    public void givenNoSteps_whenFindingPeak_thenNone() {
+        Assertions.assertEquals(-1, ThreadSweep.peakIndex(List.of()));
+        Assertions.assertEquals(-1, ThreadSweep.saturationIndex(List.of()));
+    }
+}
@@ -0,0 +1,119 @@
+package io.roach.chaos.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.roach.chaos.RunResult;
+import io.roach.chaos.RunResult.LimitSample;
+import io.roach.chaos.RunResult.Phase;
+import io.roach.chaos.metrics.Metrics;
+import io.roach.chaos.metrics.Snapshot;
+import io.roach.chaos.metrics.Timer;
+
+public class RunResultCodecTest {
+    private static Histogram histogramOf(long... micros) {
+        Histogram histogram = new Histogram(Timer.SIGNIFICANT_DIGITS);
+        for (long value : micros) {
+            histogram.recordValue(value);
+        }
+        return histogram;
+    }
+
+    private static RunResult resultOf(long commits, Duration measureTime, long... micros) {
+        Map<String, Long> pinnedSites = new LinkedHashMap<>();
+        pinnedSites.put("io.roach.chaos.Foo.bar(Foo.java:42)", commits);
+
+        return new RunResult()
+                .add(Phase.WARMUP, new Snapshot()
+                        .putCounter(Metrics.COMMITS, 1), Duration.ofSeconds(5))
+                .add(Phase.MEASURE, new Snapshot()
+                        .putCounter(Metrics.COMMITS, commits)
+                        .putCounter(Metrics.RETRIES, commits / 10)
+                        .putHistogram(Metrics.TRANSACTION_TIME, histogramOf(micros))
+                        .putHistogram(Metrics.scopedName("P4", Metrics.SERVICE_TIME), histogramOf(micros)),
+                        measureTime)
+                .setPinnedSites(pinnedSites)
+                .setAnomalies(2)
+                .addLimitSample(new LimitSample(Duration.ofSeconds(1), 16, 1000.5))
+                .addLimitSample(new LimitSample(Duration.ofSeconds(2), 12, 900.25));
+    }
+
+    private static RunResult roundTrip(RunResult result) throws IOException {
+        Message message = Message.of(Message.Type.RESULT);
+        RunResultCodec.encode(result, message);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        message.write(new DataOutputStream(bytes));
+
+        return RunResultCodec.decode(Message.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+                .expect(Message.Type.RESULT));
+    }
+
+    @Test
+    public void givenRunResult_whenEncodingAndDecoding_thenEverythingIsKept() throws IOException {
+        RunResult result = resultOf(100, Duration.ofSeconds(30), 1_000, 2_000, 50_000);
+        RunResult decoded = roundTrip(result);
+
+        for (Phase phase : Phase.values()) {
+            Assertions.assertEquals(result.getDuration(phase), decoded.getDuration(phase), phase.name());
+            Assertions.assertEquals(result.getSnapshot(phase).getCounters(),
+                    decoded.getSnapshot(phase).getCounters(), phase.name());
+            Assertions.assertEquals(result.getSnapshot(phase).getHistograms(),
+                    decoded.getSnapshot(phase).getHistograms(), phase.name());
+        }
+
+        Assertions.assertEquals(result.getPinnedSites(), decoded.getPinnedSites());
+        Assertions.assertEquals(result.getAnomalies(), decoded.getAnomalies());
+        Assertions.assertEquals(result.getLimitSamples(), decoded.getLimitSamples());
+    }
+
+    @Test
+    public void givenEmptyRunResult_whenEncodingAndDecoding_thenEmpty() throws IOException {
+        RunResult decoded = roundTrip(new RunResult());
+
+        Assertions.assertEquals(Duration.ZERO, decoded.getMeasurementTime());
+        Assertions.assertTrue(decoded.getMeasurement().getCounters().isEmpty());
+        Assertions.assertTrue(decoded.getPinnedSites().isEmpty());
+        Assertions.assertTrue(decoded.getLimitSamples().isEmpty());
+        Assertions.assertEquals(0, decoded.getAnomalies());
+    }
+
+    @Test
+    public void givenAgentResults_whenMerging_thenTakeLongestDurationAndSumTheRest() throws IOException {
+        RunResult merged = new RunResult()
+                .merge(roundTrip(resultOf(100, Duration.ofSeconds(30), 1_000, 2_000)))
+                .merge(roundTrip(resultOf(50, Duration.ofSeconds(31), 3_000)));
+
+        Assertions.assertEquals(Duration.ofSeconds(31), merged.getMeasurementTime());
+        Assertions.assertEquals(Duration.ofSeconds(5), merged.getDuration(Phase.WARMUP));
+
+        Assertions.assertEquals(150, merged.getMeasurement().counter(Metrics.COMMITS));
+        Assertions.assertEquals(15, merged.getMeasurement().counter(Metrics.RETRIES));
+        Assertions.assertEquals(2, merged.getSnapshot(Phase.WARMUP).counter(Metrics.COMMITS));
+
+        Histogram transactionTime = merged.getMeasurement().histogram(Metrics.TRANSACTION_TIME);
+        Assertions.assertEquals(histogramOf(1_000, 2_000, 3_000), transactionTime);
+        Assertions.assertEquals(3, merged.getMeasurement()
+                .histogram(Metrics.scopedName("P4", Metrics.SERVICE_TIME)).getTotalCount());
+
+        Assertions.assertEquals(Map.of("io.roach.chaos.Foo.bar(Foo.java:42)", 150L), merged.getPinnedSites());
+        Assertions.assertEquals(4, merged.getAnomalies());
+        Assertions.assertEquals(List.of(
+                        new LimitSample(Duration.ofSeconds(1), 32, 2001.0),
+                        new LimitSample(Duration.ofSeconds(2), 24, 1800.5)),
+                merged.getLimitSamples());
+
+        Assertions.assertEquals(150 * 1000.0 / 31_000, merged.getThroughput(Phase.MEASURE), 1e-9);
+    }
+}
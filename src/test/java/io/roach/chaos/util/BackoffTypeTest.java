@@ -0,0 +1,106 @@
+package io.roach.chaos.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BackoffTypeTest {
+    private static final int SAMPLES = 1_000;
+
+    private static final long BASE_MILLIS = 2;
+
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    // attempt, cap (base 2 ms doubled per attempt, at most 30 s)
+    private static final long[][] CAPS = {
+            {1, 4},
+            {2, 8},
+            {5, 64},
+            {10, 2048},
+            {13, 16384},
+            {14, 30_000},
+            {30, 30_000},
+            {Integer.MAX_VALUE, 30_000}
+    };
+
+    // attempt, 2^n + 100 ms as before the backoff strategies
+    private static final long[][] EXPONENTIAL = {
+            {1, 102},
+            {2, 104},
+            {3, 108},
+            {10, 1124},
+            {14, 16484},
+            {15, 30_000},
+            {40, 30_000}
+    };
+
+    @Test
+    public void givenFullJitter_whenBackingOff_thenWithinZeroAndCap() {
+        for (long[] row : CAPS) {
+            BackoffStrategy strategy = BackoffType.FULL_JITTER.createInstance(false);
+            for (int i = 0; i < SAMPLES; i++) {
+                long millis = strategy.backoffMillis((int) row[0]);
+                Assertions.assertTrue(millis >= 0 && millis <= row[1],
+                        "attempt %d: %d not in [0, %d]".formatted(row[0], millis, row[1]));
+            }
+        }
+    }
+
+    @Test
+    public void givenEqualJitter_whenBackingOff_thenWithinHalfCapAndCap() {
+        for (long[] row : CAPS) {
+            BackoffStrategy strategy = BackoffType.EQUAL_JITTER.createInstance(false);
+            for (int i = 0; i < SAMPLES; i++) {
+                long millis = strategy.backoffMillis((int) row[0]);
+                Assertions.assertTrue(millis >= row[1] / 2 && millis <= row[1],
+                        "attempt %d: %d not in [%d, %d]".formatted(row[0], millis, row[1] / 2, row[1]));
+            }
+        }
+    }
+
+    @Test
+    public void givenDecorrelatedJitter_whenBackingOff_thenWithinBaseAndThreeTimesPrevious() {
+        for (int run = 0; run < SAMPLES; run++) {
+            BackoffStrategy strategy = BackoffType.DECORRELATED_JITTER.createInstance(false);
+            long previous = BASE_MILLIS;
+            for (int attempt = 1; attempt <= 30; attempt++) {
+                long millis = strategy.backoffMillis(attempt);
+                Assertions.assertTrue(millis >= BASE_MILLIS && millis <= Math.max(BASE_MILLIS, previous * 3),
+                        "attempt %d: %d not in [%d, %d]".formatted(attempt, millis, BASE_MILLIS, previous * 3));
+                Assertions.assertTrue(millis <= MAX_BACKOFF_MILLIS,
+                        "attempt %d: %d above %d".formatted(attempt, millis, MAX_BACKOFF_MILLIS));
+                previous = millis;
+            }
+        }
+    }
+
+    @Test
+    public void givenExponential_whenBackingOff_thenOriginalFormula() {
+        for (long[] row : EXPONENTIAL) {
+            BackoffStrategy strategy = BackoffType.EXPONENTIAL.createInstance(false);
+            Assertions.assertEquals(row[1], strategy.backoffMillis((int) row[0]), "attempt " + row[0]);
+        }
+    }
+
+    @Test
+    public void givenExponentialWithJitter_whenBackingOff_thenWithinOneSecondAboveFormula() {
+        for (long[] row : EXPONENTIAL) {
+            BackoffStrategy strategy = BackoffType.EXPONENTIAL.createInstance(true);
+            for (int i = 0; i < SAMPLES; i++) {
+                long millis = strategy.backoffMillis((int) row[0]);
+                Assertions.assertTrue(millis >= row[1] && millis <= Math.min(row[1] + 999, MAX_BACKOFF_MILLIS),
+                        "attempt %d: %d".formatted(row[0], millis));
+            }
+        }
+    }
+
+    @Test
+    public void givenFixedAndNone_whenBackingOff_thenConstant() {
+        for (int attempt = 1; attempt <= 30; attempt++) {
+            Assertions.assertEquals(10, BackoffType.FIXED.createInstance(false).backoffMillis(attempt));
+            Assertions.assertEquals(0, BackoffType.NONE.createInstance(true).backoffMillis(attempt));
+
+            long millis = BackoffType.FIXED.createInstance(true).backoffMillis(attempt);
+            Assertions.assertTrue(millis >= 5 && millis <= 15, "fixed with jitter: " + millis);
+        }
+    }
+}
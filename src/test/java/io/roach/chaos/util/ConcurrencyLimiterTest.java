@@ -0,0 +1,146 @@
+package io.roach.chaos.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrencyLimiterTest {
+    @Test
+    public void givenAimd_whenObservationsAreSteady_thenGrowByOne() {
+        LimitAlgorithm algorithm = LimiterType.AIMD.createInstance();
+
+        Assertions.assertEquals(11, algorithm.update(10, 100, 0, 1_000, 2_000), 1e-9);
+        Assertions.assertEquals(12, algorithm.update(11, 100, 0.01, 1_000, 2_500), 1e-9);
+        Assertions.assertEquals(13, algorithm.update(12, 100, 0, 1_000, 4_000), 1e-9);
+    }
+
+    @Test
+    public void givenAimd_whenRetryRateSpikes_thenBackOff() {
+        LimitAlgorithm algorithm = LimiterType.AIMD.createInstance();
+
+        Assertions.assertEquals(11, algorithm.update(10, 100, 0, 1_000, 2_000), 1e-9);
+        Assertions.assertEquals(30, algorithm.update(40, 100, 0.2, 1_000, 2_000), 1e-9);
+        Assertions.assertEquals(31, algorithm.update(30, 100, 0, 1_000, 2_000), 1e-9);
+    }
+
+    @Test
+    public void givenAimd_whenP99Spikes_thenBackOff() {
+        LimitAlgorithm algorithm = LimiterType.AIMD.createInstance();
+
+        Assertions.assertEquals(11, algorithm.update(10, 100, 0, 1_000, 2_000), 1e-9);
+        Assertions.assertEquals(15, algorithm.update(20, 100, 0, 1_000, 4_001), 1e-9);
+        Assertions.assertEquals(16, algorithm.update(15, 100, 0, 1_000, 3_000), 1e-9);
+    }
+
+    @Test
+    public void givenGradient_whenObservationsVary_thenLimitStaysWithinBounds() {
+        final int maxLimit = 64;
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(LimiterType.GRADIENT.createInstance(), 8, maxLimit);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int i = 0; i < 10_000; i++) {
+            long p50 = random.nextLong(1, 1_000_000);
+            limiter.update(random.nextDouble(0, 5), p50, p50 * random.nextLong(1, 10));
+            Assertions.assertTrue(limiter.getLimit() >= 1 && limiter.getLimit() <= maxLimit,
+                    "limit " + limiter.getLimit());
+        }
+    }
+
+    @Test
+    public void givenGradient_whenLatencyAndRetriesStayLow_thenGrowToMaxLimit() {
+        final int maxLimit = 64;
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(LimiterType.GRADIENT.createInstance(), 1, maxLimit);
+
+        for (int i = 0; i < 1_000; i++) {
+            limiter.update(0, 1_000, 2_000);
+        }
+        Assertions.assertEquals(maxLimit, limiter.getLimit());
+    }
+
+    @Test
+    public void givenGradient_whenLatencyAndRetriesSpike_thenShrinkToOne() {
+        final int maxLimit = 64;
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(LimiterType.GRADIENT.createInstance(), maxLimit, maxLimit);
+
+        limiter.update(0, 1_000, 2_000);
+        for (int i = 0; i < 1_000; i++) {
+            limiter.update(1, 1_000_000, 2_000_000);
+        }
+        Assertions.assertTrue(limiter.getLimit() < maxLimit / 4, "limit " + limiter.getLimit());
+        Assertions.assertTrue(limiter.getLimit() >= 1, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    public void givenInitialLimitOutOfBounds_whenCreating_thenClamp() {
+        Assertions.assertEquals(1, new ConcurrencyLimiter(LimiterType.NONE.createInstance(), 0, 10).getLimit());
+        Assertions.assertEquals(10, new ConcurrencyLimiter(LimiterType.NONE.createInstance(), 50, 10).getLimit());
+    }
+
+    @Test
+    public void givenManyWorkers_whenAcquiring_thenNeverAdmitMoreThanLimit() throws Exception {
+        final int limit = 4;
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(LimiterType.AIMD.createInstance(), limit, limit);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int n = 0; n < 200; n++) {
+                        limiter.acquire();
+                        try {
+                            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            TimeUnit.MICROSECONDS.sleep(50);
+                        } finally {
+                            inFlight.decrementAndGet();
+                            limiter.release();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        Assertions.assertTrue(maxInFlight.get() <= limit, "max in flight " + maxInFlight.get());
+        Assertions.assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    public void givenShrinkingLimit_whenAcquiring_thenWaitUntilBelowNewLimit() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(LimiterType.AIMD.createInstance(), 4, 4);
+
+        limiter.update(0, 1_000, 2_000);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+        }
+        // 4 * 0.75 = 3, all taken
+        limiter.update(1, 1_000, 2_000);
+        Assertions.assertEquals(3, limiter.getLimit());
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> waiting = executor.submit(() -> {
+                limiter.acquire();
+                return null;
+            });
+            Assertions.assertThrows(TimeoutException.class,
+                    () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+            limiter.release();
+            waiting.get(5, TimeUnit.SECONDS);
+        }
+    }
+}
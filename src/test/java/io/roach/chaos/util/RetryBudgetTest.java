@@ -0,0 +1,111 @@
+package io.roach.chaos.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RetryBudgetTest {
+    private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void drain(RetryBudget budget) {
+        while (budget.tryAcquireRetry()) {
+            // spend the initial tokens
+        }
+    }
+
+    @Test
+    public void givenUnlimitedBudget_whenRetrying_thenAlwaysAllow() {
+        RetryBudget budget = RetryBudget.unlimited();
+
+        Assertions.assertFalse(budget.isEnabled());
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertTrue(budget.tryAcquireRetry());
+            Assertions.assertTrue(budget.allowAttempt());
+        }
+        Assertions.assertFalse(budget.isOpen());
+    }
+
+    @Test
+    public void givenFullBucket_whenRetryingWithoutAttempts_thenDepleteAfterHundredTokens() {
+        RetryBudget budget = new RetryBudget(10, clock::get);
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(budget.tryAcquireRetry(), "retry " + i);
+        }
+        Assertions.assertFalse(budget.tryAcquireRetry());
+        Assertions.assertTrue(budget.isOpen());
+    }
+
+    @Test
+    public void givenDepletedBucket_whenFirstAttemptsDeposit_thenRefillByRatio() {
+        RetryBudget budget = new RetryBudget(10, clock::get);
+        drain(budget);
+        advance(1_001);
+
+        // 10% of 10 first attempts is one retry
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(budget.allowAttempt());
+        }
+        Assertions.assertTrue(budget.tryAcquireRetry());
+        Assertions.assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    public void givenManyFirstAttempts_whenRefilling_thenCapAtHundredTokens() {
+        RetryBudget budget = new RetryBudget(50, clock::get);
+
+        for (int i = 0; i < 10_000; i++) {
+            budget.allowAttempt();
+        }
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(budget.tryAcquireRetry(), "retry " + i);
+        }
+        Assertions.assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    public void givenExhaustedBudget_whenWithinOneSecond_thenShedAttempts() {
+        RetryBudget budget = new RetryBudget(10, clock::get);
+        drain(budget);
+
+        Assertions.assertTrue(budget.isOpen());
+        Assertions.assertFalse(budget.allowAttempt());
+
+        advance(999);
+        Assertions.assertTrue(budget.isOpen());
+        Assertions.assertFalse(budget.allowAttempt());
+    }
+
+    @Test
+    public void givenExhaustedBudget_whenOneSecondPassed_thenCloseAndAllowAttempts() {
+        RetryBudget budget = new RetryBudget(10, clock::get);
+        drain(budget);
+
+        advance(1_000);
+        Assertions.assertFalse(budget.isOpen());
+        Assertions.assertTrue(budget.allowAttempt());
+        Assertions.assertFalse(budget.isOpen());
+    }
+
+    @Test
+    public void givenClosedCircuit_whenBudgetRunsOutAgain_thenReopenForOneSecond() {
+        RetryBudget budget = new RetryBudget(100, clock::get);
+        drain(budget);
+        advance(1_000);
+
+        Assertions.assertTrue(budget.allowAttempt());
+        Assertions.assertTrue(budget.tryAcquireRetry());
+        Assertions.assertFalse(budget.tryAcquireRetry());
+        Assertions.assertTrue(budget.isOpen());
+        Assertions.assertFalse(budget.allowAttempt());
+
+        advance(1_000);
+        Assertions.assertTrue(budget.allowAttempt());
+    }
+}
@@ -0,0 +1,100 @@
+package io.roach.chaos.workload;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class WorkloadMixTest {
+    @Test
+    public void givenAliases_whenParsing_thenMapWeights() {
+        WorkloadMix mix = WorkloadMix.parse("P4:60, A5A:30 ,P2:10");
+
+        Assertions.assertEquals(Map.of(
+                WorkloadType.LOST_UPDATE, 60,
+                WorkloadType.READ_SKEW, 30,
+                WorkloadType.NON_REPEATABLE_READ, 10), mix.getWeights());
+        Assertions.assertEquals(100, mix.getTotalWeight());
+    }
+
+    @Test
+    public void givenNamesInAnyCase_whenParsing_thenMapWeights() {
+        WorkloadMix mix = WorkloadMix.parse("lost_update:3,WRITE_SKEW:1");
+
+        Assertions.assertEquals(Map.of(
+                WorkloadType.LOST_UPDATE, 3,
+                WorkloadType.WRITE_SKEW, 1), mix.getWeights());
+        Assertions.assertEquals(4, mix.getTotalWeight());
+    }
+
+    @Test
+    public void givenMix_whenFormatting_thenUseAliasesInDeclarationOrder() {
+        Assertions.assertEquals("P2:10,P4:60,A5A:30",
+                WorkloadMix.parse("P4:60,A5A:30,P2:10").toString());
+    }
+
+    @Test
+    public void givenUnknownAlias_whenParsing_thenReject() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse("P4:60,G0:40"));
+    }
+
+    @Test
+    public void givenPhantomRead_whenParsing_thenReject() {
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> WorkloadMix.parse("P4:60,P3:40"));
+        Assertions.assertTrue(ex.getMessage().startsWith("P3"), ex.getMessage());
+    }
+
+    @Test
+    public void givenNestedMix_whenParsing_thenReject() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse("P4:60,MIX:40"));
+    }
+
+    @Test
+    public void givenInvalidWeights_whenParsing_thenReject() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse("P4:0"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse("P4:-5"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse("P4:lots"));
+    }
+
+    @Test
+    public void givenMalformedPart_whenParsing_thenReject() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse("P4"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse("P4:60:1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse(""));
+    }
+
+    @Test
+    public void givenDuplicateType_whenParsing_thenReject() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadMix.parse("P4:60,lost_update:40"));
+    }
+
+    @Test
+    public void givenSingleType_whenSampling_thenAlwaysPickIt() {
+        WorkloadMix mix = WorkloadMix.parse("A5B:7");
+
+        for (int i = 0; i < 1_000; i++) {
+            Assertions.assertEquals(WorkloadType.WRITE_SKEW, mix.next());
+        }
+    }
+
+    @Test
+    public void givenWeights_whenSampling_thenFollowDistribution() {
+        WorkloadMix mix = WorkloadMix.parse("P4:60,A5A:30,P2:10");
+
+        int samples = 100_000;
+        Map<WorkloadType, Integer> counts = new EnumMap<>(WorkloadType.class);
+        for (int i = 0; i < samples; i++) {
+            counts.merge(mix.next(), 1, Integer::sum);
+        }
+
+        Assertions.assertEquals(mix.getWeights().keySet(), counts.keySet());
+        mix.getWeights().forEach((type, weight) -> {
+            double expected = (double) weight / mix.getTotalWeight();
+            double actual = (double) counts.get(type) / samples;
+            // Binomial stddev at n=100k is at most ~0.0016, so 0.01 is over six sigma
+            Assertions.assertEquals(expected, actual, 0.01, type.alias());
+        });
+    }
+}